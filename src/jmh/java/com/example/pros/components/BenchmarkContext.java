@@ -0,0 +1,43 @@
+package com.example.pros.components;
+
+import com.example.pros.PROSApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+
+// Starts the application on a fresh in-memory H2 database, without a web server unless asked for
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    // With a web server on a random port, see port()
+    static ConfigurableApplicationContext startServer(String... properties) {
+        List<String> all = new ArrayList<>(List.of("server.port=0"));
+        all.addAll(Arrays.asList(properties));
+        return start(WebApplicationType.SERVLET, all.toArray(new String[0]));
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "flights.graph.poll-interval-ms=3600000"));
+        all.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(PROSApplication.class)
+                .web(type)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+}
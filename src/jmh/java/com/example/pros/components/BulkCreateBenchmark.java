@@ -0,0 +1,50 @@
+package com.example.pros.components;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// FlightService.bulkCreateFlights into an empty H2 table, graph refresh included
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class BulkCreateBenchmark {
+
+    @Param({"1000", "10000"})
+    public int flights;
+
+    private ConfigurableApplicationContext context;
+    private FlightService flightService;
+    private FlightRepository flightRepository;
+    private List<Flight> network;
+    private List<Flight> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        flightService = context.getBean(FlightService.class);
+        flightRepository = context.getBean(FlightRepository.class);
+        network = new FlightNetworkGenerator(Math.max(50, flights / 8), 8, 0.5, 50, 1500, 0.2, 42).flights();
+    }
+
+    // Inserted flights get ids, so every invocation needs fresh entities and an empty table
+    @Setup(Level.Invocation)
+    public void prepareBatch() {
+        flightRepository.deleteAllInBatch();
+        batch = new ArrayList<>(network.size());
+        for (Flight flight : network) {
+            batch.add(new Flight(null, flight.getSource(), flight.getDestination(), flight.getPrice()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Flight> bulkCreateFlights() {
+        return flightService.bulkCreateFlights(batch);
+    }
+}
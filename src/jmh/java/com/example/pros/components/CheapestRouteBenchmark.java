@@ -0,0 +1,68 @@
+package com.example.pros.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cheapest route queries: contraction hierarchy versus the best-first fallback
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CheapestRouteBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "4000"})
+    public int airports;
+
+    @Param({"4", "15"})
+    public double averageDegree;
+
+    private FlightGraph graph;
+    private ContractionHierarchy hierarchy;
+    private int[] origins;
+    private int[] destinations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<FlightEdgeDto> edges = new ArrayList<>();
+        for (Flight flight : new FlightNetworkGenerator(airports, averageDegree, 1.0, 50, 1500, 0.2, 42).flights()) {
+            edges.add(new FlightEdgeDto(flight.getSource(), flight.getDestination(), flight.getPrice()));
+        }
+        graph = FlightGraph.build(1, edges);
+        hierarchy = ContractionHierarchy.build(graph);
+        System.out.printf("%nHierarchy over %d airports / %d flights: %d ms, %d shortcuts, %d bytes%n",
+                graph.airportCount(), graph.flightCount(), hierarchy.getBuildNanos() / 1_000_000,
+                hierarchy.getShortcuts(), hierarchy.getMemoryBytes());
+
+        Random random = new Random(7);
+        origins = new int[QUERIES];
+        destinations = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            origins[i] = random.nextInt(graph.airportCount());
+            destinations[i] = random.nextInt(graph.airportCount());
+        }
+    }
+
+    @Benchmark
+    public Route hierarchy() {
+        int i = next++ & (QUERIES - 1);
+        return hierarchy.cheapestRoute(origins[i], destinations[i], null);
+    }
+
+    @Benchmark
+    public Route bestFirst() {
+        int i = next++ & (QUERIES - 1);
+        Route[] found = {null};
+        BestFirstRouteSearch.search(new RouteQuery(graph, origins[i], destinations[i], RouteQuery.UNLIMITED,
+                Integer.MAX_VALUE, 1), route -> {
+            found[0] = route;
+            return false;
+        });
+        return found[0];
+    }
+}
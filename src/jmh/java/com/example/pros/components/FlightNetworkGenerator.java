@@ -0,0 +1,75 @@
+package com.example.pros.components;
+
+import java.util.*;
+
+// Seeded synthetic airline network for benchmarks, with Zipf-like hubs and distance-based prices
+public class FlightNetworkGenerator {
+
+    // Three letters allow 26^3 distinct codes
+    public static final int MAX_AIRPORTS = 26 * 26 * 26;
+
+    private final int airports;
+    private final double averageDegree;
+    private final double hubSkew;
+    private final int minPrice;
+    private final int maxPrice;
+    private final double priceNoise;
+    private final long seed;
+
+    public FlightNetworkGenerator(int airports, double averageDegree, double hubSkew,
+                                  int minPrice, int maxPrice, double priceNoise, long seed) {
+        if (airports < 2 || airports > MAX_AIRPORTS) {
+            throw new IllegalArgumentException("Airports must be between 2 and " + MAX_AIRPORTS);
+        }
+        this.airports = airports;
+        this.averageDegree = averageDegree;
+        this.hubSkew = hubSkew;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.priceNoise = priceNoise;
+        this.seed = seed;
+    }
+
+    public static String airportCode(int airport) {
+        return new String(new char[]{
+                (char) ('A' + airport / (26 * 26)), (char) ('A' + airport / 26 % 26), (char) ('A' + airport % 26)});
+    }
+
+    public List<Flight> flights() {
+        Random random = new Random(seed);
+        double[] x = new double[airports];
+        double[] y = new double[airports];
+        double[] cumulativeWeight = new double[airports];
+        double total = 0;
+        for (int a = 0; a < airports; a++) {
+            x[a] = random.nextDouble();
+            y[a] = random.nextDouble();
+            total += 1 / Math.pow(a + 1, hubSkew);
+            cumulativeWeight[a] = total;
+        }
+
+        long wanted = Math.min((long) (airports * averageDegree), (long) airports * (airports - 1));
+        Set<Long> pairs = new HashSet<>();
+        List<Flight> flights = new ArrayList<>();
+        // Heavily skewed networks saturate the hubs, so give up after a bounded number of draws
+        for (long attempts = 0; flights.size() < wanted && attempts < 20 * wanted; attempts++) {
+            int source = pick(cumulativeWeight, random);
+            int destination = pick(cumulativeWeight, random);
+            if (source == destination || !pairs.add((long) source * airports + destination)) {
+                continue;
+            }
+            double distance = Math.hypot(x[source] - x[destination], y[source] - y[destination]) / Math.sqrt(2);
+            double jitter = 1 + priceNoise * (2 * random.nextDouble() - 1);
+            int price = (int) Math.round(minPrice + (maxPrice - minPrice) * distance * jitter);
+            flights.add(new Flight(null, airportCode(source), airportCode(destination),
+                    Math.max(minPrice, Math.min(maxPrice, price))));
+        }
+        return flights;
+    }
+
+    private static int pick(double[] cumulativeWeight, Random random) {
+        double target = random.nextDouble() * cumulativeWeight[cumulativeWeight.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeight, target);
+        return Math.min(index >= 0 ? index : -index - 1, cumulativeWeight.length - 1);
+    }
+}
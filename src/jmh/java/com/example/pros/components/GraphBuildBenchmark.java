@@ -0,0 +1,49 @@
+package com.example.pros.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+
+// Full route graph builds versus patching in one airport's flights
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class GraphBuildBenchmark {
+
+    @Param({"1000", "10000"})
+    public int airports;
+
+    @Param({"8"})
+    public double averageDegree;
+
+    private List<FlightEdgeDto> edges;
+    private FlightGraph graph;
+    private Map<String, List<FlightEdgeDto>> changedAirport;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        edges = new ArrayList<>();
+        for (Flight flight : new FlightNetworkGenerator(airports, averageDegree, 1.0, 50, 1500, 0.2, 42).flights()) {
+            edges.add(new FlightEdgeDto(flight.getSource(), flight.getDestination(), flight.getPrice()));
+        }
+        graph = FlightGraph.build(1, edges);
+
+        String hub = FlightNetworkGenerator.airportCode(0);
+        List<FlightEdgeDto> hubFlights = new ArrayList<>();
+        for (FlightEdgeDto edge : edges) {
+            if (edge.getSource().equals(hub)) {
+                hubFlights.add(new FlightEdgeDto(hub, edge.getDestination(), edge.getPrice() + 1));
+            }
+        }
+        changedAirport = Map.of(hub, hubFlights);
+    }
+
+    @Benchmark
+    public FlightGraph buildGraph() {
+        return FlightGraph.build(1, edges);
+    }
+
+    @Benchmark
+    public FlightGraph patchGraph() {
+        return graph.withFlightsFrom(2, changedAirport);
+    }
+}
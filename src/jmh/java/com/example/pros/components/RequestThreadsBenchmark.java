@@ -0,0 +1,81 @@
+package com.example.pros.components;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Platform versus virtual request threads under concurrent route searches and flight pages
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Threads(256)
+public class RequestThreadsBenchmark {
+
+    private static final int AIRPORTS = 500;
+    private static final int REQUESTS = 1024;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest[] routeRequests;
+    private HttpRequest[] pageRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startServer(
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "flights.search.cache.enabled=false");
+        List<Flight> flights = new FlightNetworkGenerator(AIRPORTS, 4, 1.0, 50, 1500, 0.2, 42).flights();
+        context.getBean(FlightService.class).bulkCreateFlights(flights);
+
+        String base = "http://localhost:" + BenchmarkContext.port(context) + "/api";
+        Random random = new Random(7);
+        routeRequests = new HttpRequest[REQUESTS];
+        pageRequests = new HttpRequest[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            int origin = random.nextInt(AIRPORTS);
+            int destination = (origin + 1 + random.nextInt(AIRPORTS - 1)) % AIRPORTS;
+            String body = "{\"origin\":\"" + FlightNetworkGenerator.airportCode(origin) + "\",\"destination\":\""
+                    + FlightNetworkGenerator.airportCode(destination) + "\",\"maxFlights\":3}";
+            routeRequests[i] = HttpRequest.newBuilder(URI.create(base + "/routes"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            pageRequests[i] = HttpRequest.newBuilder(URI.create(base + "/flights?limit=100&after="
+                    + random.nextInt(flights.size()))).GET().build();
+        }
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int findRoutes() throws IOException, InterruptedException {
+        return send(routeRequests[ThreadLocalRandom.current().nextInt(REQUESTS)]);
+    }
+
+    @Benchmark
+    public int listFlights() throws IOException, InterruptedException {
+        return send(pageRequests[ThreadLocalRandom.current().nextInt(REQUESTS)]);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
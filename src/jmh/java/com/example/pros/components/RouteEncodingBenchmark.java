@@ -0,0 +1,62 @@
+package com.example.pros.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Encoded size and time of a large route result in each /api/routes encoding
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class RouteEncodingBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean trie;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private List<Route> routes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ConfigurableApplicationContext context = BenchmarkContext.start("flights.search.cache.enabled=false");
+        try {
+            FlightService flightService = context.getBean(FlightService.class);
+            flightService.bulkCreateFlights(new FlightNetworkGenerator(100, 8, 1.0, 50, 1500, 0.2, 42).flights());
+            routes = flightService.findRoutes(new RouteRequestDto(FlightNetworkGenerator.airportCode(0),
+                    FlightNetworkGenerator.airportCode(1), 6)).getRoutes();
+        } finally {
+            context.close();
+        }
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        System.out.printf("%n%d routes, %s%s%s: %d bytes%n", routes.size(), format, trie ? " trie" : "",
+                gzip ? " gzip" : "", encode());
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        Object body = trie ? RouteTrieDto.of(routes) : routes;
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(body).length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, body);
+        }
+        return bytes.size();
+    }
+}
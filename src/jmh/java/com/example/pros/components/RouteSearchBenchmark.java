@@ -0,0 +1,60 @@
+package com.example.pros.components;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+
+// FlightService.findRoutes on a generated network, with the route cache disabled
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class RouteSearchBenchmark {
+
+    private static final int REQUESTS = 1024;
+
+    @Param({"500", "2000"})
+    public int airports;
+
+    @Param({"4"})
+    public double averageDegree;
+
+    @Param({"1.0"})
+    public double hubSkew;
+
+    @Param({"2", "3", "4"})
+    public int maxFlights;
+
+    private ConfigurableApplicationContext context;
+    private FlightService flightService;
+    private RouteRequestDto[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("flights.search.cache.enabled=false");
+        flightService = context.getBean(FlightService.class);
+        flightService.bulkCreateFlights(
+                new FlightNetworkGenerator(airports, averageDegree, hubSkew, 50, 1500, 0.2, 42).flights());
+
+        Random random = new Random(7);
+        requests = new RouteRequestDto[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            int origin = random.nextInt(airports);
+            int destination = (origin + 1 + random.nextInt(airports - 1)) % airports;
+            requests[i] = new RouteRequestDto(FlightNetworkGenerator.airportCode(origin),
+                    FlightNetworkGenerator.airportCode(destination), maxFlights);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Route> findRoutes() {
+        RouteRequestDto request = requests[next++ & (REQUESTS - 1)];
+        return flightService.findRoutes(request).getRoutes();
+    }
+}
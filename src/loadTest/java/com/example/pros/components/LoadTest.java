@@ -0,0 +1,311 @@
+package com.example.pros.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model HTTP load test (./gradlew loadTest, settings as -PloadTest.* properties) writing a JSON latency report
+public class LoadTest {
+
+    private static final String PREFIX = "loadTest.";
+    private static final String APP_PREFIX = PREFIX + "app.";
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        List<String> appProperties = new ArrayList<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(APP_PREFIX)) {
+                appProperties.add(name.substring(APP_PREFIX.length()) + "=" + System.getProperty(name));
+            }
+        }
+
+        ConfigurableApplicationContext context = BenchmarkContext.startServer(appProperties.toArray(new String[0]));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Flight> network = new FlightNetworkGenerator(settings.airports, settings.degree, settings.hubSkew,
+                    50, 1500, 0.2, settings.seed).flights();
+            context.getBean(FlightService.class).bulkCreateFlights(network);
+            System.out.printf("Seeded %d airports, %d flights%n", settings.airports, network.size());
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            LoadTest test = new LoadTest(settings, client, "http://localhost:" + BenchmarkContext.port(context) + "/api",
+                    network);
+            Map<String, Object> report = test.run();
+            report.put("appProperties", appProperties);
+
+            File file = new File(settings.report);
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+            System.out.println("Report written to " + file.getAbsolutePath());
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    // Everything configurable, read from loadTest.* system properties
+    static class Settings {
+        final int airports = intSetting("airports", 500);
+        final double degree = doubleSetting("degree", 4);
+        final double hubSkew = doubleSetting("hubSkew", 1.0);
+        final long seed = intSetting("seed", 42);
+        final int rate = intSetting("rate", 200); // requests per second, all endpoints together
+        final int warmupSeconds = intSetting("warmupSeconds", 10);
+        final int durationSeconds = intSetting("durationSeconds", 30);
+        final int drainSeconds = intSetting("drainSeconds", 30);
+        // Above this many requests in flight new ones are dropped (and counted) rather than sent
+        final int maxOutstanding = intSetting("maxOutstanding", 10000);
+        final int routesWeight = intSetting("routesWeight", 80);
+        final int flightsWeight = intSetting("flightsWeight", 19);
+        final int bulkCreateWeight = intSetting("bulkCreateWeight", 1);
+        final int maxFlights = intSetting("maxFlights", 3);
+        final int pageSize = intSetting("pageSize", 100);
+        final int bulkSize = intSetting("bulkSize", 50);
+        final String report = System.getProperty(PREFIX + "report", "build/reports/loadtest/report.json");
+
+        Settings() {
+            if (rate < 1 || durationSeconds < 1 || warmupSeconds < 0) {
+                throw new IllegalArgumentException("Rate and duration must be at least 1, warmup at least 0");
+            }
+            if (routesWeight < 0 || flightsWeight < 0 || bulkCreateWeight < 0
+                    || routesWeight + flightsWeight + bulkCreateWeight == 0) {
+                throw new IllegalArgumentException("Endpoint weights must be non-negative and not all 0");
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("airports", airports);
+            map.put("degree", degree);
+            map.put("hubSkew", hubSkew);
+            map.put("seed", seed);
+            map.put("rate", rate);
+            map.put("warmupSeconds", warmupSeconds);
+            map.put("durationSeconds", durationSeconds);
+            map.put("maxOutstanding", maxOutstanding);
+            map.put("routesWeight", routesWeight);
+            map.put("flightsWeight", flightsWeight);
+            map.put("bulkCreateWeight", bulkCreateWeight);
+            map.put("maxFlights", maxFlights);
+            map.put("pageSize", pageSize);
+            map.put("bulkSize", bulkSize);
+            return map;
+        }
+
+        private static int intSetting(String name, int defaultValue) {
+            String value = System.getProperty(PREFIX + name);
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        }
+
+        private static double doubleSetting(String name, double defaultValue) {
+            String value = System.getProperty(PREFIX + name);
+            return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+        }
+    }
+
+    // Latencies (in microseconds) and outcomes of the measured requests to one endpoint
+    static class EndpointStats {
+        final String name;
+        final int weight;
+        final Histogram latencies = new ConcurrentHistogram(3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder failed = new LongAdder(); // no response at all
+        final LongAdder dropped = new LongAdder();
+        final AtomicLong lastCompletion = new AtomicLong();
+
+        EndpointStats(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        void record(long intendedStart, HttpResponse<?> response, Throwable error) {
+            long now = System.nanoTime();
+            latencies.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(now - intendedStart)));
+            if (error != null) {
+                failed.increment();
+            } else {
+                statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+            }
+            lastCompletion.accumulateAndGet(now, Math::max);
+        }
+
+        Map<String, Object> toMap(long measureStart) {
+            long completed = latencies.getTotalCount();
+            double seconds = (lastCompletion.get() - measureStart) / 1e9;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", completed + dropped.sum());
+            map.put("completed", completed);
+            map.put("failed", failed.sum());
+            map.put("dropped", dropped.sum());
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count.sum()));
+            map.put("statuses", statusCounts);
+            map.put("throughputPerSecond", completed > 0 && seconds > 0 ? completed / seconds : 0);
+            Map<String, Object> micros = new LinkedHashMap<>();
+            micros.put("mean", latencies.getMean());
+            micros.put("p50", latencies.getValueAtPercentile(50));
+            micros.put("p90", latencies.getValueAtPercentile(90));
+            micros.put("p99", latencies.getValueAtPercentile(99));
+            micros.put("p999", latencies.getValueAtPercentile(99.9));
+            micros.put("max", latencies.getMaxValue());
+            map.put("latencyMicros", micros);
+            // The full histogram, for merging or plotting with HdrHistogram tools
+            ByteBuffer buffer = ByteBuffer.allocate(latencies.getNeededByteBufferCapacity());
+            int length = latencies.encodeIntoCompressedByteBuffer(buffer);
+            map.put("histogram", Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+            return map;
+        }
+    }
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final String base;
+    private final EndpointStats routes;
+    private final EndpointStats flights;
+    private final EndpointStats bulkCreate;
+    private final Random random;
+    private final Set<Long> usedPairs = new HashSet<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    LoadTest(Settings settings, HttpClient client, String base, List<Flight> network) {
+        this.settings = settings;
+        this.client = client;
+        this.base = base;
+        routes = new EndpointStats("routes", settings.routesWeight);
+        flights = new EndpointStats("flights", settings.flightsWeight);
+        bulkCreate = new EndpointStats("bulkcreate", settings.bulkCreateWeight);
+        random = new Random(settings.seed);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int a = 0; a < settings.airports; a++) {
+            ids.put(FlightNetworkGenerator.airportCode(a), a);
+        }
+        for (Flight flight : network) {
+            usedPairs.add((long) ids.get(flight.getSource()) * settings.airports + ids.get(flight.getDestination()));
+        }
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        long total = (long) settings.rate * (settings.warmupSeconds + settings.durationSeconds);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        int weights = settings.routesWeight + settings.flightsWeight + settings.bulkCreateWeight;
+        System.out.printf("Sending %d requests at %d/s (%d s warmup)%n", total, settings.rate, settings.warmupSeconds);
+
+        for (long i = 0; i < total; i++) {
+            // Due times come from the schedule, never from the previous send, so delays do not accumulate
+            long intendedStart = start + (long) (i * 1e9 / settings.rate);
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            int pick = random.nextInt(weights);
+            EndpointStats endpoint = pick < settings.routesWeight ? routes
+                    : pick < settings.routesWeight + settings.flightsWeight ? flights : bulkCreate;
+            HttpRequest request = endpoint == routes ? routeRequest() : endpoint == flights ? flightsRequest()
+                    : bulkCreateRequest();
+            boolean measured = intendedStart >= measureStart;
+            if (outstanding.get() >= settings.maxOutstanding) {
+                if (measured) {
+                    endpoint.dropped.increment();
+                }
+                continue;
+            }
+            outstanding.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (measured) {
+                    endpoint.record(intendedStart, response, error);
+                }
+                outstanding.decrementAndGet();
+            });
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.drainSeconds);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("settings", settings.toMap());
+        report.put("unfinished", outstanding.get());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (EndpointStats endpoint : List.of(routes, flights, bulkCreate)) {
+            if (endpoint.weight > 0) {
+                endpoints.put(endpoint.name, endpoint.toMap(measureStart));
+                System.out.printf("%-10s p50=%dus p99=%dus p99.9=%dus completed=%d dropped=%d statuses=%s%n",
+                        endpoint.name, endpoint.latencies.getValueAtPercentile(50),
+                        endpoint.latencies.getValueAtPercentile(99), endpoint.latencies.getValueAtPercentile(99.9),
+                        endpoint.latencies.getTotalCount(), endpoint.dropped.sum(), endpoint.statuses);
+            }
+        }
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private HttpRequest routeRequest() {
+        int origin = random.nextInt(settings.airports);
+        int destination = (origin + 1 + random.nextInt(settings.airports - 1)) % settings.airports;
+        String body = "{\"origin\":\"" + FlightNetworkGenerator.airportCode(origin) + "\",\"destination\":\""
+                + FlightNetworkGenerator.airportCode(destination) + "\",\"maxFlights\":" + settings.maxFlights + "}";
+        return HttpRequest.newBuilder(URI.create(base + "/routes"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // A keyset page starting at a random flight id
+    private HttpRequest flightsRequest() {
+        return HttpRequest.newBuilder(URI.create(base + "/flights?limit=" + settings.pageSize + "&after="
+                + random.nextInt(usedPairs.size()))).GET().build();
+    }
+
+    // Flights between airports that have none yet, so the batch is never rejected as a duplicate
+    private HttpRequest bulkCreateRequest() {
+        StringBuilder body = new StringBuilder("[");
+        int added = 0;
+        long pairs = (long) settings.airports * settings.airports;
+        for (int attempts = 0; added < settings.bulkSize && attempts < 20 * settings.bulkSize; attempts++) {
+            int source = random.nextInt(settings.airports);
+            int destination = random.nextInt(settings.airports);
+            if (source == destination || usedPairs.size() >= pairs - settings.airports
+                    || !usedPairs.add((long) source * settings.airports + destination)) {
+                continue;
+            }
+            if (added++ > 0) {
+                body.append(',');
+            }
+            body.append("{\"source\":\"").append(FlightNetworkGenerator.airportCode(source))
+                    .append("\",\"destination\":\"").append(FlightNetworkGenerator.airportCode(destination))
+                    .append("\",\"price\":").append(50 + random.nextInt(1451)).append('}');
+        }
+        body.append(']');
+        return HttpRequest.newBuilder(URI.create(base + "/bulkcreate"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+}
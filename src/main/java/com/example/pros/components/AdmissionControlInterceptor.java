@@ -0,0 +1,89 @@
+package com.example.pros.components;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+// Adaptive limit for route queries and a fixed bulkhead for bulk creation and imports
+@Component
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED_AT = AdmissionControlInterceptor.class.getName() + ".admittedAt";
+    private static final String LIMITER = AdmissionControlInterceptor.class.getName() + ".limiter";
+
+    private final boolean enabled;
+    private final AdmissionLimiter routeLimiter;
+    private final AdmissionLimiter importLimiter;
+
+    public AdmissionControlInterceptor(@Value("${flights.admission.enabled:true}") boolean enabled,
+                                       @Value("${flights.admission.routes.initial-limit:20}") int routeInitialLimit,
+                                       @Value("${flights.admission.routes.min-limit:4}") int routeMinLimit,
+                                       @Value("${flights.admission.routes.max-limit:200}") int routeMaxLimit,
+                                       @Value("${flights.admission.routes.queue-size:100}") int routeQueueSize,
+                                       @Value("${flights.admission.routes.max-wait-ms:200}") long routeMaxWaitMillis,
+                                       @Value("${flights.admission.import.max-concurrent:2}") int importMaxConcurrent,
+                                       @Value("${flights.admission.import.queue-size:4}") int importQueueSize,
+                                       @Value("${flights.admission.import.max-wait-ms:5000}") long importMaxWaitMillis,
+                                       FlightMetrics flightMetrics) {
+        this.enabled = enabled;
+        this.routeLimiter = new AdmissionLimiter("route", routeInitialLimit, routeMinLimit, routeMaxLimit,
+                routeQueueSize, routeMaxWaitMillis);
+        this.importLimiter = new AdmissionLimiter("import", importMaxConcurrent, importMaxConcurrent, importMaxConcurrent,
+                importQueueSize, importMaxWaitMillis);
+        flightMetrics.registerAdmissionLimiter(routeLimiter);
+        flightMetrics.registerAdmissionLimiter(importLimiter);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Asynchronous (streamed) responses come back through here on their async dispatch; the slot
+        // taken on the original dispatch is still held until afterCompletion
+        if (!enabled || request.getDispatcherType() != DispatcherType.REQUEST || request.getAttribute(LIMITER) != null) {
+            return true;
+        }
+        AdmissionLimiter limiter = limiterFor(request);
+        if (limiter == null) {
+            return true;
+        }
+        request.setAttribute(ADMITTED_AT, limiter.acquire());
+        request.setAttribute(LIMITER, limiter);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdmissionLimiter limiter = (AdmissionLimiter) request.getAttribute(LIMITER);
+        if (limiter == null) {
+            return;
+        }
+        request.removeAttribute(LIMITER);
+        // A streamed response lasts as long as the client keeps reading, so it says nothing about load
+        boolean sample = ex == null && request.getDispatcherType() == DispatcherType.REQUEST;
+        limiter.release((Long) request.getAttribute(ADMITTED_AT), sample);
+    }
+
+    private AdmissionLimiter limiterFor(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals("/api/routes") || path.equals("/api/routes/batch")) {
+            return routeLimiter;
+        }
+        if (path.equals("/api/bulkcreate") || path.equals("/api/import")) {
+            return importLimiter;
+        }
+        return null;
+    }
+
+    public AdmissionLimiter getRouteLimiter() {
+        return routeLimiter;
+    }
+
+    public AdmissionLimiter getImportLimiter() {
+        return importLimiter;
+    }
+}
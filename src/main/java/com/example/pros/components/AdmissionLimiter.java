@@ -0,0 +1,164 @@
+package com.example.pros.components;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Concurrency limit with a bounded wait queue, adapting to latency when minLimit < maxLimit
+public class AdmissionLimiter {
+
+    // Latency may exceed the no-load latency by this factor before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    // How far the limit moves towards each new estimate
+    private static final double SMOOTHING = 0.2;
+    // Samples per no-load latency window; the minimum is taken over the current and the previous window
+    private static final int MIN_WINDOW = 1000;
+    // Weight of each sample in the average latency used for Retry-After
+    private static final double AVERAGE_WEIGHT = 0.01;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long samples;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private long previousMinRttNanos = Long.MAX_VALUE;
+    private double averageRttNanos;
+    private long rejected;
+
+    public AdmissionLimiter(String name, int initialLimit, int minLimit, int maxLimit, int queueSize, long maxWaitMillis) {
+        if (minLimit < 1 || maxLimit < minLimit || queueSize < 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Invalid limits for " + name + " admission limiter.");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = queueSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // Takes a slot, waiting in the queue if there is room in it; returns the System.nanoTime() the
+    // request was admitted at, to be passed to release()
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return System.nanoTime();
+            }
+            if (waiting >= queueSize) {
+                throw reject();
+            }
+            waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw reject();
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject();
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Frees the slot taken at admittedAt. Only requests whose latency reflects the server's load should
+    // pass sample = true; streamed responses, for instance, run as long as the client keeps reading.
+    public void release(long admittedAt, boolean sample) {
+        long rtt = System.nanoTime() - admittedAt;
+        lock.lock();
+        try {
+            int running = inFlight--;
+            if (sample) {
+                averageRttNanos += (rtt - averageRttNanos) * (averageRttNanos == 0 ? 1 : AVERAGE_WEIGHT);
+                if (minLimit < maxLimit) {
+                    adapt(rtt, running);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt(long rttNanos, int running) {
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        if (++samples % MIN_WINDOW == 0) {
+            previousMinRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+        }
+        // Only grow while the limit is actually being used, or an idle server would drift to maxLimit
+        if (running < limit / 2) {
+            return;
+        }
+        long noLoadRttNanos = Math.min(windowMinRttNanos, previousMinRttNanos);
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRttNanos / Math.max(1, rttNanos)));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + estimate * SMOOTHING));
+    }
+
+    private ServiceOverloadedException reject() {
+        rejected++;
+        // Rough time for the requests ahead to drain, at least a second
+        double perRequestSeconds = averageRttNanos / 1e9;
+        long retryAfter = Math.max(1, (long) Math.ceil(perRequestSeconds * (inFlight + waiting) / limit));
+        return new ServiceOverloadedException("Too many concurrent " + name + " requests, please retry later.", retryAfter);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
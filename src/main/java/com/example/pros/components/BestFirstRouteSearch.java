@@ -0,0 +1,91 @@
+package com.example.pros.components;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+// Produces routes cheapest first (A* on the cheapest-price table) and stops after query.limit of them
+public class BestFirstRouteSearch {
+
+    private static class Label {
+        final int airport;
+        final int price;
+        final int flights;
+        final Label previous;
+        final long estimate;
+
+        Label(int airport, int price, int flights, Label previous, long estimate) {
+            this.airport = airport;
+            this.price = price;
+            this.flights = flights;
+            this.previous = previous;
+            this.estimate = estimate;
+        }
+
+        boolean visits(int airport) {
+            for (Label label = this; label != null; label = label.previous) {
+                if (label.airport == airport) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void search(RouteQuery query, RouteSink sink) {
+        FlightGraph graph = query.graph;
+        int[] remaining = graph.cheapestPricesTo(query.destination);
+        if (remaining[query.origin] == FlightGraph.UNREACHABLE || remaining[query.origin] > query.maxPrice) {
+            return;
+        }
+
+        int[] fewest = query.maxFlights != RouteQuery.UNLIMITED ? graph.fewestFlightsTo(query.destination) : null;
+        PriorityQueue<Label> open = new PriorityQueue<>(Comparator.comparingLong(label -> label.estimate));
+        open.add(new Label(query.origin, 0, 0, null, remaining[query.origin]));
+        int found = 0;
+        long expanded = 0;
+        long relaxed = 0;
+        try {
+            while (!open.isEmpty() && found < query.limit) {
+                Label label = open.poll();
+                if (label.airport == query.destination) {
+                    if (!sink.accept(toRoute(graph, label))) {
+                        return;
+                    }
+                    found++;
+                    continue;
+                }
+                if (!query.canTakeMoreFlights(label.flights)) {
+                    continue;
+                }
+                if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                    return;
+                }
+                for (int flight = graph.firstFlight(label.airport), end = graph.endFlight(label.airport); flight < end; flight++) {
+                    relaxed++;
+                    int next = graph.target(flight);
+                    if (remaining[next] == FlightGraph.UNREACHABLE
+                            || (fewest != null && label.flights + 1 + fewest[next] > query.maxFlights)) {
+                        continue;
+                    }
+                    int price = label.price + graph.price(flight);
+                    long estimate = (long) price + remaining[next];
+                    if (estimate > query.maxPrice || label.visits(next)) {
+                        continue;
+                    }
+                    open.add(new Label(next, price, label.flights + 1, label, estimate));
+                }
+            }
+        } finally {
+            query.stats.add(expanded, relaxed);
+            query.budget.settle(expanded % SearchBudget.CHARGE_INTERVAL);
+        }
+    }
+
+    private static Route toRoute(FlightGraph graph, Label last) {
+        int[] path = new int[last.flights + 1];
+        for (Label label = last; label != null; label = label.previous) {
+            path[label.flights] = label.airport;
+        }
+        return new Route(graph.toCities(path, path.length), last.price);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.pros.components;
+
+import java.util.Arrays;
+
+// Exhaustive search for queries with maxFlights, joining forward and backward halves in the middle
+public class BidirectionalRouteSearch {
+
+    public static void search(RouteQuery query, RouteSink sink) {
+        if (query.maxFlights == RouteQuery.UNLIMITED) {
+            DepthFirstRouteSearch.search(query, sink);
+            return;
+        }
+        int[] remaining = query.graph.cheapestPricesTo(query.destination);
+        if (query.maxFlights <= 0 || remaining[query.origin] == FlightGraph.UNREACHABLE
+                || remaining[query.origin] > query.maxPrice) {
+            return;
+        }
+        int forwardFlights = (query.maxFlights + 1) / 2;
+        ForwardHalves forward = new ForwardHalves(query.graph.airportCount(), forwardFlights);
+        if (walkForward(query, remaining, forwardFlights, forward, sink) && forward.count > 0) {
+            walkBackward(query, query.maxFlights / 2, forward, sink);
+        }
+    }
+
+    // Forward halves grouped by meeting airport: entries form a linked list per airport through next[]
+    private static class ForwardHalves {
+        final int length; // airports per half: forwardFlights + 1
+        final int[] head;
+        int[] next = new int[64];
+        int[] prices = new int[64];
+        int[] airports;
+        int count;
+
+        ForwardHalves(int airportCount, int forwardFlights) {
+            length = forwardFlights + 1;
+            head = new int[airportCount];
+            Arrays.fill(head, -1);
+            airports = new int[64 * length];
+        }
+
+        void add(int[] path, int price) {
+            if (count == prices.length) {
+                next = Arrays.copyOf(next, count * 2);
+                prices = Arrays.copyOf(prices, count * 2);
+                airports = Arrays.copyOf(airports, count * 2 * length);
+            }
+            System.arraycopy(path, 0, airports, count * length, length);
+            prices[count] = price;
+            int meeting = path[length - 1];
+            next[count] = head[meeting];
+            head[meeting] = count;
+            count++;
+        }
+    }
+
+    // Emits routes of up to forwardFlights flights and records every forward half that ends elsewhere.
+    // Returns false if the sink cancelled the search.
+    private static boolean walkForward(RouteQuery query, int[] remaining, int forwardFlights, ForwardHalves forward,
+                                       RouteSink sink) {
+        FlightGraph graph = query.graph;
+        int[] path = new int[forwardFlights + 1];
+        int[] pathPrices = new int[forwardFlights + 1];
+        int[] nextFlight = new int[forwardFlights + 1];
+        long[] visited = new long[(graph.airportCount() + 63) >>> 6];
+        int[] fewest = graph.fewestFlightsTo(query.destination);
+
+        path[0] = query.origin;
+        nextFlight[0] = graph.firstFlight(query.origin);
+        visited[query.origin >>> 6] |= 1L << query.origin;
+        int depth = 1;
+        long expanded = 1;
+        long relaxed = 0;
+        long stored = 0;
+        try {
+            while (depth > 0) {
+                int current = path[depth - 1];
+                int flight = nextFlight[depth - 1];
+                if (flight == graph.endFlight(current) || depth - 1 == forwardFlights) {
+                    visited[current >>> 6] &= ~(1L << current);
+                    depth--;
+                    continue;
+                }
+                nextFlight[depth - 1] = flight + 1;
+                relaxed++;
+
+                int next = graph.target(flight);
+                if ((visited[next >>> 6] & (1L << next)) != 0 || remaining[next] == FlightGraph.UNREACHABLE
+                        || depth + fewest[next] > query.maxFlights) {
+                    continue;
+                }
+                int price = pathPrices[depth - 1] + graph.price(flight);
+                if ((long) price + remaining[next] > query.maxPrice) {
+                    continue;
+                }
+
+                path[depth] = next;
+                if (next == query.destination) {
+                    if (!sink.accept(new Route(graph.toCities(path, depth + 1), price))) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (depth == forwardFlights) {
+                    forward.add(path, price);
+                    if (++stored % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                        return false;
+                    }
+                    continue;
+                }
+                pathPrices[depth] = price;
+                nextFlight[depth] = graph.firstFlight(next);
+                visited[next >>> 6] |= 1L << next;
+                depth++;
+                if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            query.stats.add(expanded, relaxed);
+            query.budget.settle(expanded % SearchBudget.CHARGE_INTERVAL + stored % SearchBudget.CHARGE_INTERVAL);
+        }
+    }
+
+    // Walks incoming flights back from the destination and joins each backward half with the forward
+    // halves that end at the same airport. Airports the origin cannot reach, or only above maxPrice or in
+    // more flights than are left, are not walked through.
+    private static void walkBackward(RouteQuery query, int backwardFlights, ForwardHalves forward, RouteSink sink) {
+        FlightGraph graph = query.graph;
+        int[] cheapestFromOrigin = graph.cheapestPricesFrom(query.origin);
+        int[] fewestFromOrigin = graph.fewestFlightsFrom(query.origin);
+        int[] path = new int[backwardFlights + 1];
+        int[] pathPrices = new int[backwardFlights + 1];
+        int[] nextIncoming = new int[backwardFlights + 1];
+        long[] visited = new long[(graph.airportCount() + 63) >>> 6];
+        int[] route = new int[forward.length + backwardFlights];
+
+        path[0] = query.destination;
+        nextIncoming[0] = graph.firstIncoming(query.destination);
+        visited[query.destination >>> 6] |= 1L << query.destination;
+        int depth = 1;
+        long expanded = 1;
+        long relaxed = 0;
+        try {
+            while (depth > 0) {
+                int current = path[depth - 1];
+                int incoming = nextIncoming[depth - 1];
+                if (incoming == graph.endIncoming(current) || depth - 1 == backwardFlights) {
+                    visited[current >>> 6] &= ~(1L << current);
+                    depth--;
+                    continue;
+                }
+                nextIncoming[depth - 1] = incoming + 1;
+                relaxed++;
+
+                int previous = graph.source(incoming);
+                if (previous == query.origin || (visited[previous >>> 6] & (1L << previous)) != 0
+                        || cheapestFromOrigin[previous] == FlightGraph.UNREACHABLE
+                        || depth + fewestFromOrigin[previous] > query.maxFlights) {
+                    continue;
+                }
+                int price = pathPrices[depth - 1] + graph.reversePrice(incoming);
+                if ((long) price + cheapestFromOrigin[previous] > query.maxPrice) {
+                    continue;
+                }
+                path[depth] = previous;
+
+                for (int half = forward.head[previous]; half != -1; half = forward.next[half]) {
+                    if ((long) forward.prices[half] + price > query.maxPrice) {
+                        continue;
+                    }
+                    int start = half * forward.length;
+                    if (overlaps(forward.airports, start, forward.length - 1, visited)) {
+                        continue;
+                    }
+                    System.arraycopy(forward.airports, start, route, 0, forward.length);
+                    for (int i = depth - 1; i >= 0; i--) {
+                        route[forward.length + depth - 1 - i] = path[i];
+                    }
+                    if (!sink.accept(new Route(graph.toCities(route, forward.length + depth), forward.prices[half] + price))) {
+                        return;
+                    }
+                }
+
+                pathPrices[depth] = price;
+                nextIncoming[depth] = graph.firstIncoming(previous);
+                visited[previous >>> 6] |= 1L << previous;
+                depth++;
+                if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                    return;
+                }
+            }
+        } finally {
+            query.stats.add(expanded, relaxed);
+            query.budget.settle(expanded % SearchBudget.CHARGE_INTERVAL);
+        }
+    }
+
+    private static boolean overlaps(int[] airports, int start, int length, long[] visited) {
+        for (int i = start; i < start + length; i++) {
+            if ((visited[airports[i] >>> 6] & (1L << airports[i])) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
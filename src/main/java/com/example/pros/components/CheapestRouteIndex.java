@@ -0,0 +1,113 @@
+package com.example.pros.components;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Answers CHEAPEST searches from a ContractionHierarchy rebuilt in the background, falling back to best-first
+@Slf4j
+@Component
+public class CheapestRouteIndex {
+
+    private final boolean enabled;
+    private final FlightMetrics flightMetrics;
+    private final ExecutorService builder;
+
+    private final AtomicReference<FlightGraph> pending = new AtomicReference<>();
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicLong builds = new AtomicLong();
+    private volatile ContractionHierarchy hierarchy;
+
+    public CheapestRouteIndex(@Value("${flights.search.cheapest-index.enabled:true}") boolean enabled,
+                              FlightMetrics flightMetrics) {
+        this.enabled = enabled;
+        this.flightMetrics = flightMetrics;
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cheapest-route-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flightMetrics.registerCheapestRouteIndex(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    @EventListener
+    public void onGraphUpdated(FlightGraphUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        pending.set(event.getGraph());
+        if (building.compareAndSet(false, true)) {
+            builder.execute(this::buildPending);
+        }
+    }
+
+    private void buildPending() {
+        do {
+            FlightGraph graph;
+            while ((graph = pending.getAndSet(null)) != null) {
+                ContractionHierarchy current = hierarchy;
+                if (current != null && current.getGraphVersion() >= graph.getVersion()) {
+                    continue;
+                }
+                try {
+                    Timer.Sample sample = flightMetrics.start();
+                    ContractionHierarchy built = ContractionHierarchy.build(graph);
+                    flightMetrics.recordGraphBuild(sample, "hierarchy");
+                    hierarchy = built;
+                    builds.incrementAndGet();
+                } catch (RuntimeException e) {
+                    log.warn("Could not build the cheapest route index for graph version {}", graph.getVersion(), e);
+                }
+            }
+            building.set(false);
+            // A snapshot published after the inner loop ended but before the flag was cleared found the
+            // build still running and left it to this thread
+        } while (pending.get() != null && building.compareAndSet(false, true));
+    }
+
+    // Pushes the cheapest route of the query, if any, to the sink
+    public void search(RouteQuery query, RouteSink sink) {
+        ContractionHierarchy current = hierarchy;
+        if (current == null || current.getGraph() != query.graph || query.maxFlights != RouteQuery.UNLIMITED) {
+            BestFirstRouteSearch.search(query, route -> {
+                sink.accept(route);
+                return false;
+            });
+            return;
+        }
+        Route route = current.cheapestRoute(query.origin, query.destination, query.stats);
+        if (route != null && route.getTotalPrice() <= query.maxPrice) {
+            sink.accept(route);
+        }
+    }
+
+    public CheapestRouteIndexStatsDto stats() {
+        ContractionHierarchy current = hierarchy;
+        if (current == null) {
+            return new CheapestRouteIndexStatsDto(enabled, building.get(), null, 0, 0, 0, 0, 0, builds.get());
+        }
+        return new CheapestRouteIndexStatsDto(enabled, building.get(), current.getGraphVersion(),
+                current.getGraph().airportCount(), current.getGraph().flightCount(), current.getShortcuts(),
+                current.getMemoryBytes(), current.getBuildNanos() / 1_000_000, builds.get());
+    }
+
+    // Bytes held by the current hierarchy, 0 before the first build
+    public long memoryBytes() {
+        ContractionHierarchy current = hierarchy;
+        return current != null ? current.getMemoryBytes() : 0;
+    }
+}
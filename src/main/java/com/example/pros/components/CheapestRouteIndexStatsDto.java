@@ -0,0 +1,20 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheapestRouteIndexStatsDto {
+    public boolean enabled;
+    public boolean building; // A rebuild for a newer graph is running
+    public Long graphVersion; // Graph the index was built from; null before the first build
+    public int airports;
+    public int flights;
+    public int shortcuts;
+    public long memoryBytes;
+    public long buildMillis;
+    public long builds; // Completed builds since startup
+}
@@ -0,0 +1,596 @@
+package com.example.pros.components;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Contraction hierarchy over one FlightGraph snapshot, answering cheapest route queries
+public class ContractionHierarchy {
+
+    // Witness searches give up after scanning this many edges and add the shortcut anyway; that only
+    // costs an unnecessary shortcut, never a wrong answer. Estimating an airport's importance, which
+    // happens far more often than contracting it, only looks for direct flights (the search stops after
+    // the source's own edges).
+    private static final int WITNESS_SCAN_LIMIT = 5000;
+    private static final int ESTIMATE_SCAN_LIMIT = 1;
+
+    // Airports with more remaining edges than this when their turn comes are not contracted. They form
+    // a densely connected core at the top of the hierarchy, which queries search like a plain graph:
+    // contracting them would cost far more witness searches and shortcuts than it saves.
+    private static final int CORE_DEGREE = 256;
+
+    private static final int NO_MIDDLE = -1;
+
+    private final FlightGraph graph;
+    private final int[] rank;
+
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upPrices;
+    private final int[] upMiddles; // Airport a shortcut goes through, NO_MIDDLE for a flight
+
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downPrices;
+    private final int[] downMiddles;
+
+    private final int shortcuts;
+    private final long buildNanos;
+
+    // Reusable per-query search state, so queries don't allocate airport-sized arrays
+    private final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    private ContractionHierarchy(FlightGraph graph, int[] rank, EdgeList up, EdgeList down, int shortcuts,
+                                 long buildNanos) {
+        this.graph = graph;
+        this.rank = rank;
+        int airports = graph.airportCount();
+        this.upOffsets = up.offsets(airports);
+        this.upTargets = Arrays.copyOf(up.others, up.size);
+        this.upPrices = Arrays.copyOf(up.prices, up.size);
+        this.upMiddles = Arrays.copyOf(up.middles, up.size);
+        this.downOffsets = down.offsets(airports);
+        this.downSources = Arrays.copyOf(down.others, down.size);
+        this.downPrices = Arrays.copyOf(down.prices, down.size);
+        this.downMiddles = Arrays.copyOf(down.middles, down.size);
+        this.shortcuts = shortcuts;
+        this.buildNanos = buildNanos;
+    }
+
+    public static ContractionHierarchy build(FlightGraph graph) {
+        long start = System.nanoTime();
+        int airports = graph.airportCount();
+        Adjacency out = new Adjacency(airports);
+        Adjacency in = new Adjacency(airports);
+        for (int a = 0; a < airports; a++) {
+            for (int flight = graph.firstFlight(a), end = graph.endFlight(a); flight < end; flight++) {
+                int target = graph.target(flight);
+                if (target != a) {
+                    out.put(a, target, graph.price(flight), NO_MIDDLE);
+                    in.put(target, a, graph.price(flight), NO_MIDDLE);
+                }
+            }
+        }
+
+        Contraction contraction = new Contraction(airports, out, in);
+        // Lazy updates: an airport's importance is recomputed when it reaches the top of the queue, and it
+        // is put back if it is no longer the least important
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        for (int a = 0; a < airports; a++) {
+            queue.add(new long[] {contraction.importance(a), a});
+        }
+        int[] rank = new int[airports];
+        EdgeList up = new EdgeList();
+        EdgeList down = new EdgeList();
+        int shortcuts = 0;
+        int next = 0;
+        IntList core = new IntList();
+        while (!queue.isEmpty()) {
+            int airport = (int) queue.poll()[1];
+            if (out.size[airport] + in.size[airport] > CORE_DEGREE) {
+                core.add(airport);
+                continue;
+            }
+            int importance = contraction.importance(airport);
+            if (!queue.isEmpty() && importance > queue.peek()[0]) {
+                queue.add(new long[] {importance, airport});
+                continue;
+            }
+            rank[airport] = next++;
+            // Its remaining edges all lead to airports contracted later, i.e. ranked higher
+            for (int i = 0; i < out.size[airport]; i++) {
+                up.add(airport, out.others[airport][i], out.prices[airport][i], out.middles[airport][i]);
+            }
+            for (int i = 0; i < in.size[airport]; i++) {
+                down.add(airport, in.others[airport][i], in.prices[airport][i], in.middles[airport][i]);
+            }
+            shortcuts += contraction.contract(airport);
+        }
+        // The core ranks above everything else; its edges among each other are kept in both directions
+        for (int i = 0; i < core.size; i++) {
+            int airport = core.values[i];
+            rank[airport] = next++;
+            for (int j = 0; j < out.size[airport]; j++) {
+                up.add(airport, out.others[airport][j], out.prices[airport][j], out.middles[airport][j]);
+            }
+            for (int j = 0; j < in.size[airport]; j++) {
+                down.add(airport, in.others[airport][j], in.prices[airport][j], in.middles[airport][j]);
+            }
+        }
+        return new ContractionHierarchy(graph, rank, up, down, shortcuts, System.nanoTime() - start);
+    }
+
+    // Cheapest route from origin to destination with its price, or null if there is none. Counts the
+    // airports both searches settled and the edges they scanned into stats.
+    public Route cheapestRoute(int origin, int destination, SearchStats stats) {
+        if (origin == destination) {
+            return new Route(graph.toCities(new int[] {origin}, 1), 0);
+        }
+        Workspace forward = borrow();
+        Workspace backward = borrow();
+        long expanded = 0;
+        long relaxed = 0;
+        try {
+            forward.start(origin);
+            backward.start(destination);
+            long best = Long.MAX_VALUE;
+            int meeting = -1;
+            boolean forwardTurn = true;
+            while (true) {
+                long forwardMin = forward.minPrice();
+                long backwardMin = backward.minPrice();
+                if (Math.min(forwardMin, backwardMin) >= best) {
+                    break;
+                }
+                // Alternate, but don't pick a side whose queue has nothing left below the best price
+                Workspace side = forwardTurn ? forward : backward;
+                if ((forwardTurn ? forwardMin : backwardMin) >= best) {
+                    side = forwardTurn ? backward : forward;
+                }
+                forwardTurn = !forwardTurn;
+                boolean up = side == forward;
+                Workspace other = up ? backward : forward;
+
+                int airport = side.pollSettled();
+                if (airport < 0) {
+                    continue;
+                }
+                expanded++;
+                long price = side.price(airport);
+                long otherPrice = other.price(airport);
+                if (otherPrice != Long.MAX_VALUE && price + otherPrice < best) {
+                    best = price + otherPrice;
+                    meeting = airport;
+                }
+                int[] offsets = up ? upOffsets : downOffsets;
+                int[] neighbours = up ? upTargets : downSources;
+                int[] prices = up ? upPrices : downPrices;
+                for (int edge = offsets[airport], end = offsets[airport + 1]; edge < end; edge++) {
+                    relaxed++;
+                    side.relax(neighbours[edge], price + prices[edge], edge, airport);
+                }
+            }
+            if (meeting < 0) {
+                return null;
+            }
+            int[] path = unpack(forward, backward, origin, destination, meeting);
+            return new Route(graph.toCities(path, path.length), (int) best);
+        } finally {
+            if (stats != null) {
+                stats.add(expanded, relaxed);
+            }
+            workspaces.add(forward);
+            workspaces.add(backward);
+        }
+    }
+
+    // Airports of the cheapest route through meeting, with every shortcut expanded into its flights
+    private int[] unpack(Workspace forward, Workspace backward, int origin, int destination, int meeting) {
+        IntList path = new IntList();
+        // Up edges from the origin to the meeting airport, collected backwards
+        Deque<Integer> upPath = new ArrayDeque<>();
+        for (int airport = meeting; airport != origin; airport = forward.from(airport)) {
+            upPath.push(airport);
+        }
+        path.add(origin);
+        for (int airport : upPath) {
+            unpackEdge(forward.from(airport), airport, upMiddles[forward.edge(airport)], path);
+        }
+        for (int airport = meeting; airport != destination; airport = backward.from(airport)) {
+            unpackEdge(airport, backward.from(airport), downMiddles[backward.edge(airport)], path);
+        }
+        return path.toArray();
+    }
+
+    // Appends the airports after from on the edge from -> to, recursing through shortcut middles
+    private void unpackEdge(int from, int to, int middle, IntList path) {
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] {from, to, middle});
+        while (!stack.isEmpty()) {
+            int[] edge = stack.pop();
+            if (edge[2] == NO_MIDDLE) {
+                path.add(edge[1]);
+                continue;
+            }
+            int via = edge[2];
+            // from -> via is a down edge of via (via is ranked lower), via -> to an up edge of via
+            stack.push(new int[] {via, edge[1], findMiddle(upOffsets, upTargets, upMiddles, via, edge[1])});
+            stack.push(new int[] {edge[0], via, findMiddle(downOffsets, downSources, downMiddles, via, edge[0])});
+        }
+    }
+
+    private static int findMiddle(int[] offsets, int[] others, int[] middles, int airport, int other) {
+        for (int edge = offsets[airport], end = offsets[airport + 1]; edge < end; edge++) {
+            if (others[edge] == other) {
+                return middles[edge];
+            }
+        }
+        throw new IllegalStateException("Shortcut through airport " + airport + " has no matching edge");
+    }
+
+    private Workspace borrow() {
+        Workspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new Workspace(graph.airportCount());
+    }
+
+    public long getGraphVersion() {
+        return graph.getVersion();
+    }
+
+    public FlightGraph getGraph() {
+        return graph;
+    }
+
+    public int getShortcuts() {
+        return shortcuts;
+    }
+
+    public int getEdges() {
+        return upTargets.length + downSources.length;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    // Bytes held by the index arrays, not counting the FlightGraph itself or query workspaces
+    public long getMemoryBytes() {
+        return 4L * (rank.length + upOffsets.length + downOffsets.length
+                + 3L * upTargets.length + 3L * downSources.length);
+    }
+
+    // Dijkstra state for one direction of a query. Prices are reset lazily through a per-query stamp.
+    private static class Workspace {
+        private final long[] prices;
+        private final int[] edges;
+        private final int[] froms;
+        private final int[] stamps;
+        private final boolean[] settled;
+        private int stamp;
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+        Workspace(int airports) {
+            prices = new long[airports];
+            edges = new int[airports];
+            froms = new int[airports];
+            stamps = new int[airports];
+            settled = new boolean[airports];
+        }
+
+        void start(int airport) {
+            stamp++;
+            queue.clear();
+            touch(airport);
+            prices[airport] = 0;
+            edges[airport] = -1;
+            queue.add(new long[] {0, airport});
+        }
+
+        private void touch(int airport) {
+            if (stamps[airport] != stamp) {
+                stamps[airport] = stamp;
+                prices[airport] = Long.MAX_VALUE;
+                settled[airport] = false;
+            }
+        }
+
+        long price(int airport) {
+            return stamps[airport] == stamp ? prices[airport] : Long.MAX_VALUE;
+        }
+
+        // Edge the airport was reached by, and the airport before it
+        int edge(int airport) {
+            return edges[airport];
+        }
+
+        int from(int airport) {
+            return froms[airport];
+        }
+
+        long minPrice() {
+            while (!queue.isEmpty() && settled[(int) queue.peek()[1]]) {
+                queue.poll();
+            }
+            return queue.isEmpty() ? Long.MAX_VALUE : queue.peek()[0];
+        }
+
+        // The cheapest unsettled airport, now settled, or -1 if there is none
+        int pollSettled() {
+            while (!queue.isEmpty()) {
+                long[] entry = queue.poll();
+                int airport = (int) entry[1];
+                if (!settled[airport] && entry[0] == prices[airport]) {
+                    settled[airport] = true;
+                    return airport;
+                }
+            }
+            return -1;
+        }
+
+        void relax(int airport, long price, int edge, int from) {
+            touch(airport);
+            if (price < prices[airport]) {
+                prices[airport] = price;
+                edges[airport] = edge;
+                froms[airport] = from;
+                queue.add(new long[] {price, airport});
+            }
+        }
+    }
+
+    // Remaining (not yet contracted) edges per airport during preprocessing, one list per direction
+    private static class Adjacency {
+        final int[][] others;
+        final int[][] prices;
+        final int[][] middles;
+        final int[] size;
+
+        Adjacency(int airports) {
+            others = new int[airports][];
+            prices = new int[airports][];
+            middles = new int[airports][];
+            size = new int[airports];
+            for (int a = 0; a < airports; a++) {
+                others[a] = new int[4];
+                prices[a] = new int[4];
+                middles[a] = new int[4];
+            }
+        }
+
+        int indexOf(int airport, int other) {
+            for (int i = 0; i < size[airport]; i++) {
+                if (others[airport][i] == other) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Adds the edge, or lowers the price of an existing one; true if anything changed
+        boolean put(int airport, int other, int price, int middle) {
+            int i = indexOf(airport, other);
+            if (i >= 0) {
+                if (price >= prices[airport][i]) {
+                    return false;
+                }
+                prices[airport][i] = price;
+                middles[airport][i] = middle;
+                return true;
+            }
+            if (size[airport] == others[airport].length) {
+                others[airport] = Arrays.copyOf(others[airport], size[airport] * 2);
+                prices[airport] = Arrays.copyOf(prices[airport], size[airport] * 2);
+                middles[airport] = Arrays.copyOf(middles[airport], size[airport] * 2);
+            }
+            others[airport][size[airport]] = other;
+            prices[airport][size[airport]] = price;
+            middles[airport][size[airport]++] = middle;
+            return true;
+        }
+
+        void remove(int airport, int other) {
+            int i = indexOf(airport, other);
+            if (i >= 0) {
+                int last = --size[airport];
+                others[airport][i] = others[airport][last];
+                prices[airport][i] = prices[airport][last];
+                middles[airport][i] = middles[airport][last];
+            }
+        }
+    }
+
+    // Witness searches and shortcut insertion over the remaining network
+    private static class Contraction {
+        private final Adjacency out;
+        private final Adjacency in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final long[] prices;
+        private final int[] stamps;
+        private final int[] settledStamps;
+        private int stamp;
+        // Out-neighbours of the airport being contracted, which witness searches need to settle
+        private final int[] targetStamps;
+        private int targetStamp;
+
+        Contraction(int airports, Adjacency out, Adjacency in) {
+            this.out = out;
+            this.in = in;
+            contracted = new boolean[airports];
+            contractedNeighbours = new int[airports];
+            prices = new long[airports];
+            stamps = new int[airports];
+            settledStamps = new int[airports];
+            targetStamps = new int[airports];
+        }
+
+        int importance(int airport) {
+            int added = shortcuts(airport, false);
+            return added - out.size[airport] - in.size[airport] + contractedNeighbours[airport];
+        }
+
+        // Removes the airport from the remaining network; returns the number of shortcuts added
+        int contract(int airport) {
+            int added = shortcuts(airport, true);
+            contracted[airport] = true;
+            for (int i = 0; i < out.size[airport]; i++) {
+                int target = out.others[airport][i];
+                in.remove(target, airport);
+                contractedNeighbours[target]++;
+            }
+            for (int i = 0; i < in.size[airport]; i++) {
+                int source = in.others[airport][i];
+                out.remove(source, airport);
+                contractedNeighbours[source]++;
+            }
+            return added;
+        }
+
+        // Shortcuts needed between the airport's neighbours when it is removed, added only if insert is set
+        private int shortcuts(int airport, boolean insert) {
+            int count = 0;
+            int outs = out.size[airport];
+            if (outs == 0) {
+                return 0;
+            }
+            long maxOut = 0;
+            targetStamp++;
+            for (int j = 0; j < outs; j++) {
+                maxOut = Math.max(maxOut, out.prices[airport][j]);
+                targetStamps[out.others[airport][j]] = targetStamp;
+            }
+            for (int i = 0; i < in.size[airport]; i++) {
+                int source = in.others[airport][i];
+                long toAirport = in.prices[airport][i];
+                int targets = targetStamps[source] == targetStamp ? outs - 1 : outs;
+                witnessSearch(source, airport, toAirport + maxOut, targets,
+                        insert ? WITNESS_SCAN_LIMIT : ESTIMATE_SCAN_LIMIT);
+                for (int j = 0; j < outs; j++) {
+                    int target = out.others[airport][j];
+                    if (target == source) {
+                        continue;
+                    }
+                    long via = toAirport + out.prices[airport][j];
+                    if (price(target) <= via) {
+                        continue;
+                    }
+                    count++;
+                    if (insert) {
+                        int shortcutPrice = (int) Math.min(via, Integer.MAX_VALUE);
+                        if (out.put(source, target, shortcutPrice, airport)) {
+                            in.put(target, source, shortcutPrice, airport);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Dijkstra from source over the remaining network without the excluded airport, up to maxPrice and
+        // until the given number of target airports are settled
+        private void witnessSearch(int source, int excluded, long maxPrice, int targets, int scanLimit) {
+            stamp++;
+            PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            stamps[source] = stamp;
+            prices[source] = 0;
+            queue.add(new long[] {0, source});
+            int scanned = 0;
+            while (!queue.isEmpty() && scanned < scanLimit && targets > 0) {
+                long[] entry = queue.poll();
+                int airport = (int) entry[1];
+                if (entry[0] > prices[airport] || settledStamps[airport] == stamp) {
+                    continue;
+                }
+                if (entry[0] > maxPrice) {
+                    break;
+                }
+                settledStamps[airport] = stamp;
+                scanned += out.size[airport];
+                if (targetStamps[airport] == targetStamp && airport != source) {
+                    targets--;
+                }
+                for (int i = 0; i < out.size[airport]; i++) {
+                    int next = out.others[airport][i];
+                    if (next == excluded) {
+                        continue;
+                    }
+                    long price = entry[0] + out.prices[airport][i];
+                    if (price <= maxPrice && price < price(next)) {
+                        stamps[next] = stamp;
+                        prices[next] = price;
+                        queue.add(new long[] {price, next});
+                    }
+                }
+            }
+        }
+
+        private long price(int airport) {
+            return stamps[airport] == stamp ? prices[airport] : Long.MAX_VALUE;
+        }
+    }
+
+    // Final edges in insertion order, keyed by the lower-ranked airport they are stored at
+    private static class EdgeList {
+        int[] airports = new int[16];
+        int[] others = new int[16];
+        int[] prices = new int[16];
+        int[] middles = new int[16];
+        int size;
+
+        void add(int airport, int other, int price, int middle) {
+            if (size == airports.length) {
+                airports = Arrays.copyOf(airports, size * 2);
+                others = Arrays.copyOf(others, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            airports[size] = airport;
+            others[size] = other;
+            prices[size] = price;
+            middles[size++] = middle;
+        }
+
+        // Edges are added airport by airport in contraction order, so sort them into CSR order by airport
+        int[] offsets(int airportCount) {
+            int[] offsets = new int[airportCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[airports[i] + 1]++;
+            }
+            for (int a = 0; a < airportCount; a++) {
+                offsets[a + 1] += offsets[a];
+            }
+            int[] next = Arrays.copyOf(offsets, airportCount);
+            int[] sortedOthers = new int[size];
+            int[] sortedPrices = new int[size];
+            int[] sortedMiddles = new int[size];
+            for (int i = 0; i < size; i++) {
+                int slot = next[airports[i]]++;
+                sortedOthers[slot] = others[i];
+                sortedPrices[slot] = prices[i];
+                sortedMiddles[slot] = middles[i];
+            }
+            others = sortedOthers;
+            prices = sortedPrices;
+            middles = sortedMiddles;
+            return offsets;
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
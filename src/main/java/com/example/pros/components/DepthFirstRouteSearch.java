@@ -0,0 +1,84 @@
+package com.example.pros.components;
+
+// Exhaustive search: every simple route from origin to destination, in discovery order
+public class DepthFirstRouteSearch {
+
+    public static void search(RouteQuery query, RouteSink sink) {
+        int[] remaining = query.graph.cheapestPricesTo(query.destination);
+        if (remaining[query.origin] == FlightGraph.UNREACHABLE || remaining[query.origin] > query.maxPrice) {
+            return;
+        }
+        searchFrom(query, remaining, new int[] {query.origin}, 1, 0, sink);
+    }
+
+    // Enumerates the routes that start with prefix[0 .. prefixLength - 1] (the origin first, the destination
+    // not included), which lets ParallelRouteSearch hand each task its own branch with its own buffers.
+    // Returns false if the sink cancelled the search.
+    static boolean searchFrom(RouteQuery query, int[] remaining, int[] prefix, int prefixLength, int prefixPrice,
+                              RouteSink sink) {
+        FlightGraph graph = query.graph;
+        int airports = graph.airportCount();
+        int maxDepth = query.maxFlights >= 0 ? Math.min(airports, query.maxFlights + 1) : airports;
+        int[] path = new int[maxDepth + 1];
+        int[] pathPrices = new int[maxDepth + 1];
+        int[] nextFlight = new int[maxDepth + 1];
+        long[] visited = new long[(airports + 63) >>> 6];
+        int[] fewest = query.maxFlights != RouteQuery.UNLIMITED ? graph.fewestFlightsTo(query.destination) : null;
+
+        for (int i = 0; i < prefixLength; i++) {
+            path[i] = prefix[i];
+            visited[prefix[i] >>> 6] |= 1L << prefix[i];
+        }
+        pathPrices[prefixLength - 1] = prefixPrice;
+        nextFlight[prefixLength - 1] = graph.firstFlight(prefix[prefixLength - 1]);
+        int depth = prefixLength;
+        long expanded = 1;
+        long relaxed = 0;
+        try {
+            while (depth >= prefixLength) {
+                int current = path[depth - 1];
+                int flight = nextFlight[depth - 1];
+                if (flight == graph.endFlight(current) || !query.canTakeMoreFlights(depth - 1)) {
+                    visited[current >>> 6] &= ~(1L << current);
+                    depth--;
+                    continue;
+                }
+                nextFlight[depth - 1] = flight + 1;
+                relaxed++;
+
+                int next = graph.target(flight);
+                if ((visited[next >>> 6] & (1L << next)) != 0 || remaining[next] == FlightGraph.UNREACHABLE) {
+                    continue;
+                }
+                // depth flights taken once at next; reachable, so fewest[next] is a real count
+                if (fewest != null && depth + fewest[next] > query.maxFlights) {
+                    continue;
+                }
+                int price = pathPrices[depth - 1] + graph.price(flight);
+                if ((long) price + remaining[next] > query.maxPrice) {
+                    continue;
+                }
+
+                path[depth] = next;
+                if (next == query.destination) {
+                    // Only materialize the route on arrival; the destination never becomes part of a longer path
+                    if (!sink.accept(new Route(graph.toCities(path, depth + 1), price))) {
+                        return false;
+                    }
+                    continue;
+                }
+                pathPrices[depth] = price;
+                nextFlight[depth] = graph.firstFlight(next);
+                visited[next >>> 6] |= 1L << next;
+                depth++;
+                if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            query.stats.add(expanded, relaxed);
+            query.budget.settle(expanded % SearchBudget.CHARGE_INTERVAL);
+        }
+    }
+}
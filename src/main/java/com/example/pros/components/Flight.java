@@ -7,13 +7,20 @@ import lombok.NoArgsConstructor;
 
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Flight.ROUTE_CONSTRAINT, columnNames = {"source", "destination"}))
+@EntityListeners(FlightChangeListener.class)
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class Flight {
 
+    // One flight per source/destination pair; the backing index also serves lookups by source
+    public static final String ROUTE_CONSTRAINT = "uk_flight_route";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids (allocated 50 at a time) keep Hibernate's JDBC insert batching available
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flight_seq")
+    @SequenceGenerator(name = "flight_seq", allocationSize = 50)
     private Long id;
 
     private String source;
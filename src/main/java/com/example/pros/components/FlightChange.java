@@ -0,0 +1,25 @@
+package com.example.pros.components;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+// A source airport changed at a change version; a null source means reload everything
+@Entity
+@Table(indexes = @Index(name = "ix_flight_change_version", columnList = "version"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class FlightChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flight_change_seq")
+    @SequenceGenerator(name = "flight_change_seq", allocationSize = 50)
+    private Long id;
+
+    private long version;
+
+    private String source;
+}
@@ -0,0 +1,25 @@
+package com.example.pros.components;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+// Latest flight change version, locked by writers just before commit, and the database's epoch
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class FlightChangeCounter {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long version;
+
+    private long epoch;
+}
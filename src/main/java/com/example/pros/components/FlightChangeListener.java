@@ -0,0 +1,73 @@
+package com.example.pros.components;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Records the source airports each transaction writes, for the FlightChangeLog and FlightGraphHolder
+public class FlightChangeListener {
+
+    private static final Object TRANSACTION_KEY = new Object();
+
+    @Autowired
+    private ObjectProvider<FlightChangeLog> changeLog;
+
+    @Autowired
+    private ObjectProvider<FlightGraphHolder> graphHolder;
+
+    @PostPersist
+    @PreRemove
+    void onChange(Flight flight) {
+        Set<String> sources = changedSources();
+        if (sources != null) {
+            sources.add(flight.getSource());
+        }
+    }
+
+    @PreUpdate
+    void onUpdate(Flight flight) {
+        Set<String> sources = changedSources();
+        if (sources != null) {
+            // The previous source is not known here, so the whole network has to be reloaded
+            sources.add(null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> changedSources() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Set<String> sources = (Set<String>) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+        if (sources == null) {
+            Set<String> changed = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!readOnly) {
+                        changeLog.getObject().record(changed);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                    if (status == STATUS_COMMITTED && !changed.isEmpty()) {
+                        // Not in line: this thread's transaction is still bound until completion ends
+                        graphHolder.getObject().refreshInBackground();
+                    }
+                }
+            });
+            sources = changed;
+        }
+        return sources;
+    }
+}
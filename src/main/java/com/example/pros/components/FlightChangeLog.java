@@ -0,0 +1,105 @@
+package com.example.pros.components;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.util.*;
+
+// Versioned record of the source airports whose flights changed, shared by every instance
+@Component
+public class FlightChangeLog {
+
+    // Exceptions thrown here bypass the repository and transaction manager translation, so a
+    // duplicate route found by the flush below would otherwise not surface as a DataAccessException
+    private static final HibernateJpaDialect JPA_DIALECT = new HibernateJpaDialect();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private FlightChangeRepository flightChangeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile long epoch;
+
+    public void initialize() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (entityManager.find(FlightChangeCounter.class, FlightChangeCounter.ID) == null) {
+                    entityManager.persist(newCounter());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the counter first
+        }
+        epoch = transactionTemplate.execute(
+                status -> entityManager.find(FlightChangeCounter.class, FlightChangeCounter.ID)).getEpoch();
+    }
+
+    // Identifies the database the versions belong to; set by initialize()
+    public long epoch() {
+        return epoch;
+    }
+
+    private static FlightChangeCounter newCounter() {
+        return new FlightChangeCounter(FlightChangeCounter.ID, 0, new SecureRandom().nextLong());
+    }
+
+    public long latestVersion() {
+        FlightChangeCounter counter = transactionTemplate.execute(
+                status -> entityManager.find(FlightChangeCounter.class, FlightChangeCounter.ID));
+        return counter != null ? counter.getVersion() : 0;
+    }
+
+    // Distinct source airports changed after the given version up to and including upTo, or null
+    // when some change requires reloading every airport
+    public Set<String> changedSources(long after, long upTo) {
+        Set<String> sources = new HashSet<>(flightChangeRepository.findChangedSources(after, upTo));
+        return sources.contains(null) ? null : sources;
+    }
+
+    public void prune(long upTo) {
+        if (upTo > 0) {
+            flightChangeRepository.deleteUpTo(upTo);
+        }
+    }
+
+    // Called by FlightChangeListener just before the writing transaction commits. The counter row
+    // stays locked until the commit, which keeps version order and commit order the same.
+    void record(Set<String> sources) {
+        try {
+            writeChanges(sources);
+        } catch (RuntimeException e) {
+            throw DataAccessUtils.translateIfNecessary(e, JPA_DIALECT);
+        }
+    }
+
+    private void writeChanges(Set<String> sources) {
+        // Runs the callbacks of flights written but not flushed yet, which may add to sources
+        entityManager.flush();
+        if (sources.isEmpty()) {
+            // Nothing changed, so leave the counter row unlocked
+            return;
+        }
+        FlightChangeCounter counter = entityManager.find(FlightChangeCounter.class, FlightChangeCounter.ID,
+                LockModeType.PESSIMISTIC_WRITE);
+        if (counter == null) {
+            counter = newCounter();
+            entityManager.persist(counter);
+        }
+        counter.setVersion(counter.getVersion() + 1);
+        for (String source : sources) {
+            entityManager.persist(new FlightChange(null, counter.getVersion(), source));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.pros.components;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface FlightChangeRepository extends JpaRepository<FlightChange, Long> {
+
+    // Source airports changed by versions after..upTo; contains null if a full reload is needed
+    @Query("select distinct c.source from FlightChange c where c.version > :after and c.version <= :upTo")
+    List<String> findChangedSources(@Param("after") long after, @Param("upTo") long upTo);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FlightChange c where c.version <= :upTo")
+    int deleteUpTo(@Param("upTo") long upTo);
+}
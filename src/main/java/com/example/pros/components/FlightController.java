@@ -1,8 +1,15 @@
 package com.example.pros.components;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,12 +21,90 @@ public class FlightController {
     private FlightService flightRouteService;
 
     @Autowired
-    private FlightRepository flightRepository;
+    private ObjectMapper objectMapper;
 
+    @Autowired
+    private RouteCache routeCache;
+
+    @Autowired
+    private FlightImportService flightImportService;
+
+    @Autowired
+    private CheapestRouteIndex cheapestRouteIndex;
+
+    // Echo each search's work counters in X-Search-* headers (and the SSE end event)
+    @Value("${flights.search.stats-headers:false}")
+    private boolean statsHeaders;
 
     @PostMapping("/routes")
-    public List<Route> getRoutes(@RequestBody RouteRequestDto request) {
-        return flightRouteService.findRoutes(request.origin, request.destination, request.maxFlights);
+    public ResponseEntity<List<Route>> getRoutes(@RequestBody RouteRequestDto request) {
+        RouteSearchResult result = flightRouteService.findRoutes(request);
+        return routeResponse(result).body(result.getRoutes());
+    }
+
+    // Same search as getRoutes, with the routes encoded as a prefix tree (JSON, CBOR or Smile)
+    @PostMapping(value = "/routes", produces = {RouteTrieDto.MEDIA_TYPE_JSON, RouteTrieDto.MEDIA_TYPE_CBOR,
+            RouteTrieDto.MEDIA_TYPE_SMILE})
+    public ResponseEntity<RouteTrieDto> getRouteTrie(@RequestBody RouteRequestDto request) {
+        RouteSearchResult result = flightRouteService.findRoutes(request);
+        return routeResponse(result).body(RouteTrieDto.of(result.getRoutes()));
+    }
+
+    private ResponseEntity.BodyBuilder routeResponse(RouteSearchResult result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("X-Graph-Version", String.valueOf(result.getGraphVersion()))
+                .header("X-Routes-Complete", String.valueOf(result.getTruncatedBy() == null));
+        if (result.getTruncatedBy() != null) {
+            response.header("X-Routes-Truncated-By", result.getTruncatedBy());
+        }
+        if (statsHeaders) {
+            response.header("X-Search-Nodes-Expanded", String.valueOf(result.getStats().getNodesExpanded()))
+                    .header("X-Search-Edges-Relaxed", String.valueOf(result.getStats().getEdgesRelaxed()))
+                    .header("X-Search-Routes", String.valueOf(result.getRoutes().size()));
+        }
+        return response;
+    }
+
+    @GetMapping("/routes/cache")
+    public RouteCacheStatsDto getRouteCacheStats() {
+        return routeCache.stats();
+    }
+
+    @GetMapping("/routes/index")
+    public CheapestRouteIndexStatsDto getCheapestRouteIndexStats() {
+        return cheapestRouteIndex.stats();
+    }
+
+    @PostMapping("/routes/batch")
+    public ResponseEntity<List<RouteBatchEntryDto>> getRoutesBatch(@RequestBody List<RouteRequestDto> requests) {
+        RouteBatchResult result = flightRouteService.findRoutesBatch(requests);
+        return ResponseEntity.ok()
+                .header("X-Graph-Version", String.valueOf(result.getGraphVersion()))
+                .body(result.getEntries());
+    }
+
+    // Same search as getRoutes, but each route is written as soon as it is found
+    @PostMapping(value = "/routes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRoutesNdjson(@RequestBody RouteRequestDto request) {
+        return streamRoutes(request, MediaType.APPLICATION_NDJSON, false);
+    }
+
+    @PostMapping(value = "/routes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRoutesSse(@RequestBody RouteRequestDto request) {
+        return streamRoutes(request, MediaType.TEXT_EVENT_STREAM, true);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamRoutes(RouteRequestDto request, MediaType contentType, boolean sse) {
+        PreparedRouteSearch search = flightRouteService.prepareSearch(request);
+        StreamingResponseBody body = out -> {
+            RouteStreamWriter writer = new RouteStreamWriter(out, objectMapper, sse);
+            flightRouteService.streamRoutes(search, writer);
+            writer.finish(statsHeaders ? search.getStats() : null, search.getTruncatedBy());
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header("X-Graph-Version", String.valueOf(search.getGraphVersion()))
+                .body(body);
     }
 
     @PostMapping("/create")
@@ -27,9 +112,28 @@ public class FlightController {
         return flightRouteService.createFlight(flight);
     }
 
+    // Streams every flight (optionally filtered) as one JSON array without loading the table into memory
+    @GetMapping(value = "/flights", params = "export")
+    public ResponseEntity<StreamingResponseBody> exportFlights(@RequestParam(required = false) String source,
+                                                               @RequestParam(required = false) String destination) {
+        List<Flight> firstPage = flightRouteService.firstExportPage(source, destination);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> flightRouteService.writeFlights(firstPage, source, destination, out));
+    }
+
+    // Keyset pagination: pass the X-Next-Cursor value of one page as "after" to get the next one
     @GetMapping("/flights")
-    public List<Flight> getAllFlights() {
-        return flightRepository.findAll();
+    public ResponseEntity<List<Flight>> getFlightsPage(@RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) String source,
+                                                       @RequestParam(required = false) String destination) {
+        List<Flight> page = flightRouteService.getFlightsPage(after, limit, source, destination);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == (limit != null ? limit : flightRouteService.getMaxPageSize())) {
+            response.header("X-Next-Cursor", String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
     }
 
     @PostMapping("/bulkcreate")
@@ -37,8 +141,15 @@ public class FlightController {
         return flightRouteService.bulkCreateFlights(flights);
     }
 
+    // Streaming schedule import: one flight per line as CSV (source,destination,price) or NDJSON
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public FlightImportSummaryDto importFlights(@RequestHeader("Content-Type") MediaType contentType,
+                                                InputStream body) throws IOException {
+        return flightImportService.importFlights(body, contentType.isCompatibleWith(MediaType.parseMediaType("text/csv")));
+    }
+
     @DeleteMapping("/flights")
     public void deleteAllFlights() {
-        flightRepository.deleteAll();
+        flightRouteService.deleteAllFlights();
     }
 }
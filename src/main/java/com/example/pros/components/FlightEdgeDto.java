@@ -4,12 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+// The columns of a Flight the route graph needs, loaded by a constructor projection instead of entities
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
-public class FlightInfoDto {
-
+@AllArgsConstructor
+public class FlightEdgeDto {
+    public String source;
     public String destination;
     public Integer price;
-
-}
\ No newline at end of file
+}
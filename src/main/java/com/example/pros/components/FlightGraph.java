@@ -0,0 +1,303 @@
+package com.example.pros.components;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Immutable CSR snapshot of the flight network as of a FlightChangeLog version
+public class FlightGraph {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Upper bound on cached cheapestPricesTo() entries, counted in ints across all destinations
+    private static final int CHEAPEST_PRICES_CACHE_INTS = 1 << 22;
+
+    private final long version;
+
+    private final String[] airports;
+    private final Map<String, Integer> airportIds;
+    // Flights leaving airport a: targets[offsets[a]] .. targets[offsets[a + 1] - 1], prices alongside
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] prices;
+
+    // The same flights indexed by destination, for searches that run backwards
+    private final int[] reverseOffsets;
+    private final int[] sources;
+    private final int[] reversePrices;
+
+    private final Map<Integer, int[]> cheapestPrices = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> fewestFlights = new ConcurrentHashMap<>();
+    private volatile ReachabilityIndex reachability;
+
+    private FlightGraph(long version, String[] airports, Map<String, Integer> airportIds,
+                        int[] offsets, int[] targets, int[] prices) {
+        this.version = version;
+        this.airports = airports;
+        this.airportIds = airportIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.prices = prices;
+
+        reverseOffsets = new int[airports.length + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int a = 0; a < airports.length; a++) {
+            reverseOffsets[a + 1] += reverseOffsets[a];
+        }
+        int[] next = Arrays.copyOf(reverseOffsets, airports.length);
+        sources = new int[targets.length];
+        reversePrices = new int[targets.length];
+        for (int a = 0; a < airports.length; a++) {
+            for (int flight = offsets[a]; flight < offsets[a + 1]; flight++) {
+                int slot = next[targets[flight]]++;
+                sources[slot] = a;
+                reversePrices[slot] = prices[flight];
+            }
+        }
+    }
+
+    public static FlightGraph build(long version, List<FlightEdgeDto> flights) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> codes = new ArrayList<>();
+        int[] sources = new int[flights.size()];
+        int[] destinations = new int[flights.size()];
+        for (int i = 0; i < flights.size(); i++) {
+            FlightEdgeDto flight = flights.get(i);
+            sources[i] = intern(flight.getSource(), ids, codes);
+            destinations[i] = intern(flight.getDestination(), ids, codes);
+        }
+
+        // Counting sort by source keeps each airport's flights in their original order
+        int[] offsets = new int[codes.size() + 1];
+        for (int source : sources) {
+            offsets[source + 1]++;
+        }
+        for (int a = 0; a < codes.size(); a++) {
+            offsets[a + 1] += offsets[a];
+        }
+        int[] next = Arrays.copyOf(offsets, codes.size());
+        int[] targets = new int[flights.size()];
+        int[] prices = new int[flights.size()];
+        for (int i = 0; i < flights.size(); i++) {
+            int slot = next[sources[i]]++;
+            targets[slot] = destinations[i];
+            prices[slot] = flights.get(i).getPrice();
+        }
+        return new FlightGraph(version, codes.toArray(new String[0]), Map.copyOf(ids),
+                offsets, targets, prices);
+    }
+
+    // Graph from the arrays read back from a FlightGraphSnapshotFile, in the layout described above
+    static FlightGraph fromArrays(long version, String[] airports, int[] offsets, int[] targets, int[] prices) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int a = 0; a < airports.length; a++) {
+            ids.put(airports[a], a);
+        }
+        return new FlightGraph(version, airports, Map.copyOf(ids), offsets, targets, prices);
+    }
+
+    // Copy of this graph where the flights leaving each given source airport are replaced by the
+    // given ones (an empty list removes them all). The other airports' flight ranges are copied
+    // over unchanged, so no flights need to be reloaded for them. Airports that lose all their
+    // flights keep their id until the next full build.
+    public FlightGraph withFlightsFrom(long version, Map<String, List<FlightEdgeDto>> flightsBySource) {
+        Map<String, Integer> ids = new HashMap<>(airportIds);
+        List<String> codes = new ArrayList<>(Arrays.asList(airports));
+        Map<Integer, List<FlightEdgeDto>> replaced = new HashMap<>();
+        for (Map.Entry<String, List<FlightEdgeDto>> entry : flightsBySource.entrySet()) {
+            replaced.put(intern(entry.getKey(), ids, codes), entry.getValue());
+            for (FlightEdgeDto flight : entry.getValue()) {
+                intern(flight.getDestination(), ids, codes);
+            }
+        }
+
+        int[] newOffsets = new int[codes.size() + 1];
+        for (int a = 0; a < codes.size(); a++) {
+            List<FlightEdgeDto> flights = replaced.get(a);
+            int count = flights != null ? flights.size() : a < airports.length ? offsets[a + 1] - offsets[a] : 0;
+            newOffsets[a + 1] = newOffsets[a] + count;
+        }
+        int[] newTargets = new int[newOffsets[codes.size()]];
+        int[] newPrices = new int[newTargets.length];
+        for (int a = 0; a < codes.size(); a++) {
+            List<FlightEdgeDto> flights = replaced.get(a);
+            if (flights != null) {
+                int slot = newOffsets[a];
+                for (FlightEdgeDto flight : flights) {
+                    newTargets[slot] = ids.get(flight.getDestination());
+                    newPrices[slot++] = flight.getPrice();
+                }
+            } else if (a < airports.length) {
+                int count = offsets[a + 1] - offsets[a];
+                System.arraycopy(targets, offsets[a], newTargets, newOffsets[a], count);
+                System.arraycopy(prices, offsets[a], newPrices, newOffsets[a], count);
+            }
+        }
+        return new FlightGraph(version, codes.toArray(new String[0]), Map.copyOf(ids),
+                newOffsets, newTargets, newPrices);
+    }
+
+    private static int intern(String code, Map<String, Integer> ids, List<String> codes) {
+        Integer id = ids.get(code);
+        if (id == null) {
+            id = codes.size();
+            ids.put(code, id);
+            codes.add(code);
+        }
+        return id;
+    }
+
+    // Returns the dense id of an airport, or -1 if no flight in this graph (or, after
+    // withFlightsFrom(), a graph it was derived from) touches it
+    public int airportId(String code) {
+        Integer id = airportIds.get(code);
+        return id != null ? id : -1;
+    }
+
+    public String airportCode(int airport) {
+        return airports[airport];
+    }
+
+    public int airportCount() {
+        return airports.length;
+    }
+
+    public int flightCount() {
+        return targets.length;
+    }
+
+    // First index into target()/price() for the flights leaving the airport
+    public int firstFlight(int airport) {
+        return offsets[airport];
+    }
+
+    // One past the last index into target()/price() for the flights leaving the airport
+    public int endFlight(int airport) {
+        return offsets[airport + 1];
+    }
+
+    public int target(int flight) {
+        return targets[flight];
+    }
+
+    public int price(int flight) {
+        return prices[flight];
+    }
+
+    // First index into source()/reversePrice() for the flights arriving at the airport
+    public int firstIncoming(int airport) {
+        return reverseOffsets[airport];
+    }
+
+    public int endIncoming(int airport) {
+        return reverseOffsets[airport + 1];
+    }
+
+    public int source(int incoming) {
+        return sources[incoming];
+    }
+
+    public int reversePrice(int incoming) {
+        return reversePrices[incoming];
+    }
+
+    // Cheapest price from every airport to the destination (Dijkstra over the incoming flights),
+    // UNREACHABLE where there is no connection. Ignores hop limits, so it is a lower bound for any search.
+    // Computed once per destination and snapshot; callers must not modify the returned array.
+    public int[] cheapestPricesTo(int destination) {
+        return cachedCheapestPrices(destination, true);
+    }
+
+    // Cheapest price from the origin to every airport, the forward counterpart of cheapestPricesTo()
+    public int[] cheapestPricesFrom(int origin) {
+        return cachedCheapestPrices(origin, false);
+    }
+
+    private int[] cachedCheapestPrices(int airport, boolean towards) {
+        int key = towards ? airport : ~airport;
+        int[] cheapest = cheapestPrices.get(key);
+        if (cheapest == null) {
+            cheapest = towards
+                    ? computeCheapestPrices(airport, reverseOffsets, sources, reversePrices)
+                    : computeCheapestPrices(airport, offsets, targets, prices);
+            if (cheapestPrices.size() >= Math.max(1, CHEAPEST_PRICES_CACHE_INTS / Math.max(1, airports.length))) {
+                cheapestPrices.clear();
+            }
+            cheapestPrices.put(key, cheapest);
+        }
+        return cheapest;
+    }
+
+    // Fewest flights from every airport to the destination (breadth-first over the incoming flights),
+    // UNREACHABLE where there is no connection. Ignores prices and revisits, so searches with maxFlights
+    // can drop any branch that cannot arrive in time. Cached like cheapestPricesTo().
+    public int[] fewestFlightsTo(int destination) {
+        return cachedFewestFlights(destination, true);
+    }
+
+    // Fewest flights from the origin to every airport, the forward counterpart of fewestFlightsTo()
+    public int[] fewestFlightsFrom(int origin) {
+        return cachedFewestFlights(origin, false);
+    }
+
+    private int[] cachedFewestFlights(int airport, boolean towards) {
+        int key = towards ? airport : ~airport;
+        int[] fewest = fewestFlights.get(key);
+        if (fewest == null) {
+            fewest = ReachabilityIndex.fewestFlights(this, airport, towards, new int[airports.length]);
+            if (fewestFlights.size() >= Math.max(1, CHEAPEST_PRICES_CACHE_INTS / Math.max(1, airports.length))) {
+                fewestFlights.clear();
+            }
+            fewestFlights.put(key, fewest);
+        }
+        return fewest;
+    }
+
+    // Null until ReachabilityIndexBuilder has built it for this snapshot
+    public ReachabilityIndex reachability() {
+        return reachability;
+    }
+
+    void attachReachability(ReachabilityIndex index) {
+        reachability = index;
+    }
+
+    // Dijkstra from start over the given adjacency arrays (forward or reverse)
+    private int[] computeCheapestPrices(int start, int[] offsets, int[] neighbours, int[] neighbourPrices) {
+        int[] cheapest = new int[airports.length];
+        Arrays.fill(cheapest, UNREACHABLE);
+        cheapest[start] = 0;
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add((long) start);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int airport = (int) entry;
+            int price = (int) (entry >>> 32);
+            if (price > cheapest[airport]) {
+                continue;
+            }
+            for (int flight = offsets[airport]; flight < offsets[airport + 1]; flight++) {
+                int neighbour = neighbours[flight];
+                int candidate = (int) Math.min((long) price + neighbourPrices[flight], UNREACHABLE - 1);
+                if (candidate < cheapest[neighbour]) {
+                    cheapest[neighbour] = candidate;
+                    queue.add(((long) candidate << 32) | neighbour);
+                }
+            }
+        }
+        return cheapest;
+    }
+
+    public List<String> toCities(int[] path, int length) {
+        String[] cities = new String[length];
+        for (int i = 0; i < length; i++) {
+            cities[i] = airports[path[i]];
+        }
+        return Arrays.asList(cities);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.pros.components;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Holds the current FlightGraph snapshot and brings it up to the latest change version
+@Component
+public class FlightGraphHolder {
+
+    // Above this share of the airports changed, reloading everything is cheaper than patching
+    private static final int FULL_RELOAD_DIVISOR = 8;
+    private static final int FULL_RELOAD_MIN_SOURCES = 16;
+
+    // Sources per query when reloading changed airports, to stay within IN-list limits
+    private static final int SOURCES_PER_QUERY = 1000;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private FlightChangeLog changeLog;
+
+    @Autowired
+    private FlightGraphSnapshotFile snapshotFile;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FlightMetrics flightMetrics;
+
+    @Value("${flights.graph.change-retention}")
+    private long changeRetention;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile FlightGraph current;
+
+    // Refreshes requested by FlightChangeListener after commits, coalesced into one queued refresh
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flight-graph-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        changeLog.initialize();
+        // Start from the stored snapshot, if any, so only the changes since it was written are read
+        Timer.Sample sample = flightMetrics.start();
+        FlightGraph snapshot = snapshotFile.load(changeLog.epoch(), changeLog.latestVersion());
+        if (snapshot != null) {
+            flightMetrics.recordGraphBuild(sample, "snapshot");
+            current = snapshot;
+            eventPublisher.publishEvent(new FlightGraphUpdatedEvent(snapshot));
+        }
+        refresh();
+    }
+
+    // Never waits for a refresh once the first snapshot is loaded
+    public FlightGraph get() {
+        FlightGraph graph = current;
+        return graph != null ? graph : refresh();
+    }
+
+    // Called after a transaction writing flights commits; FlightService's own writes also refresh in line
+    void refreshInBackground() {
+        // Before init() the first refresh picks the write up anyway
+        if (current != null && refreshQueued.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                refreshQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdownRefresher() {
+        refresher.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${flights.graph.poll-interval-ms}")
+    public void poll() {
+        if (current != null) {
+            long latest = refresh().getVersion();
+            // Keep twice the retention so an instance that is up to changeRetention versions behind
+            // a pruning instance still finds every change it needs
+            changeLog.prune(latest - 2 * changeRetention);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${flights.graph.snapshot-interval-ms}")
+    @PreDestroy
+    public void saveSnapshot() {
+        FlightGraph graph = current;
+        if (graph != null) {
+            snapshotFile.save(graph, changeLog.epoch());
+        }
+    }
+
+    public FlightGraph refresh() {
+        // A lock rather than synchronized: refreshes query the database, and a virtual thread blocked
+        // inside a synchronized block would pin its carrier thread
+        refreshLock.lock();
+        try {
+            return refreshLocked();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private FlightGraph refreshLocked() {
+        // Read the version before the flights: flights committed in between are applied again
+        // on the next refresh, which is harmless since reloading an airport is idempotent
+        long latest = changeLog.latestVersion();
+        FlightGraph graph = current;
+        if (graph != null && graph.getVersion() == latest) {
+            return graph;
+        }
+        Set<String> changed = graph != null && graph.getVersion() < latest && latest - graph.getVersion() <= changeRetention
+                ? changeLog.changedSources(graph.getVersion(), latest)
+                : null;
+        Timer.Sample sample = flightMetrics.start();
+        if (changed == null || changed.size() > Math.max(FULL_RELOAD_MIN_SOURCES, graph.airportCount() / FULL_RELOAD_DIVISOR)) {
+            graph = FlightGraph.build(latest, flightRepository.findAllEdges());
+            flightMetrics.recordGraphBuild(sample, "full");
+        } else {
+            graph = graph.withFlightsFrom(latest, flightsFrom(changed));
+            flightMetrics.recordGraphBuild(sample, "incremental");
+        }
+        current = graph;
+        eventPublisher.publishEvent(new FlightGraphUpdatedEvent(graph));
+        return graph;
+    }
+
+    private Map<String, List<FlightEdgeDto>> flightsFrom(Set<String> sources) {
+        Map<String, List<FlightEdgeDto>> flights = new HashMap<>();
+        for (String source : sources) {
+            flights.put(source, new ArrayList<>());
+        }
+        List<String> all = new ArrayList<>(sources);
+        for (int i = 0; i < all.size(); i += SOURCES_PER_QUERY) {
+            List<String> chunk = all.subList(i, Math.min(all.size(), i + SOURCES_PER_QUERY));
+            for (FlightEdgeDto flight : flightRepository.findEdgesBySourceIn(chunk)) {
+                flights.get(flight.getSource()).add(flight);
+            }
+        }
+        return flights;
+    }
+}
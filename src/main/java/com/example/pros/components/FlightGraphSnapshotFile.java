@@ -0,0 +1,170 @@
+package com.example.pros.components;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Binary FlightGraph file loaded at startup so a restart only reads the changes since it
+@Slf4j
+@Component
+public class FlightGraphSnapshotFile {
+
+    private static final int MAGIC = 0x464C4753; // "FLGS"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 40;
+
+    private final Path path;
+
+    private volatile long savedVersion = -1;
+
+    // Not synchronized: writing blocks on file I/O, which would pin a virtual thread's carrier
+    private final ReentrantLock saveLock = new ReentrantLock();
+
+    public FlightGraphSnapshotFile(@Value("${flights.graph.snapshot-path:}") String path) {
+        this.path = path.isBlank() ? null : Paths.get(path);
+    }
+
+    // Returns the stored graph if it belongs to the given database and is not ahead of it,
+    // otherwise null
+    public FlightGraph load(long epoch, long latestVersion) {
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (file.getInt() != MAGIC || file.getInt() != FORMAT || file.getLong() != epoch) {
+                return null;
+            }
+            long version = file.getLong();
+            int airportCount = file.getInt();
+            int flightCount = file.getInt();
+            long checksum = file.getLong();
+            if (version > latestVersion || airportCount < 0 || flightCount < 0) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(file.slice(HEADER_BYTES, file.capacity() - HEADER_BYTES));
+            if (crc.getValue() != checksum) {
+                log.warn("Ignoring graph snapshot {}: checksum mismatch", path);
+                return null;
+            }
+
+            int[] offsets = new int[airportCount + 1];
+            int[] targets = new int[flightCount];
+            int[] prices = new int[flightCount];
+            file.asIntBuffer().get(offsets).get(targets).get(prices);
+            file.position(file.position() + 4 * (offsets.length + 2 * flightCount));
+            String[] airports = new String[airportCount];
+            for (int a = 0; a < airportCount; a++) {
+                byte[] code = new byte[file.getShort() & 0xFFFF];
+                file.get(code);
+                airports[a] = new String(code, StandardCharsets.UTF_8);
+            }
+            if (!isConsistent(offsets, targets, flightCount)) {
+                log.warn("Ignoring graph snapshot {}: inconsistent adjacency arrays", path);
+                return null;
+            }
+            savedVersion = version;
+            return FlightGraph.fromArrays(version, airports, offsets, targets, prices);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable graph snapshot {}", path, e);
+            return null;
+        }
+    }
+
+    private static boolean isConsistent(int[] offsets, int[] targets, int flightCount) {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != flightCount) {
+            return false;
+        }
+        for (int a = 1; a < offsets.length; a++) {
+            if (offsets[a] < offsets[a - 1]) {
+                return false;
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= offsets.length - 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes the graph unless it is already stored. The file is written next to the target and
+    // moved over it, so readers see either the old or the new snapshot.
+    public void save(FlightGraph graph, long epoch) {
+        if (path == null) {
+            return;
+        }
+        saveLock.lock();
+        try {
+            if (graph.getVersion() != savedVersion) {
+                write(graph, epoch);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void write(FlightGraph graph, long epoch) {
+        int airportCount = graph.airportCount();
+        int flightCount = graph.flightCount();
+        byte[][] codes = new byte[airportCount][];
+        long size = HEADER_BYTES + 4L * (airportCount + 1 + 2L * flightCount);
+        for (int a = 0; a < airportCount; a++) {
+            codes[a] = graph.airportCode(a).getBytes(StandardCharsets.UTF_8);
+            size += 2 + codes[a].length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            log.warn("Not writing graph snapshot {}: {} bytes is too large to map", path, size);
+            return;
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                file.position(HEADER_BYTES);
+                for (int a = 0; a < airportCount; a++) {
+                    file.putInt(graph.firstFlight(a));
+                }
+                file.putInt(flightCount);
+                for (int flight = 0; flight < flightCount; flight++) {
+                    file.putInt(graph.target(flight));
+                }
+                for (int flight = 0; flight < flightCount; flight++) {
+                    file.putInt(graph.price(flight));
+                }
+                for (byte[] code : codes) {
+                    file.putShort((short) code.length);
+                    file.put(code);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(file.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+                file.position(0);
+                file.putInt(MAGIC).putInt(FORMAT).putLong(epoch).putLong(graph.getVersion())
+                        .putInt(airportCount).putInt(flightCount).putLong(crc.getValue());
+                file.force();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedVersion = graph.getVersion();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write graph snapshot {}", path, e);
+        }
+    }
+}
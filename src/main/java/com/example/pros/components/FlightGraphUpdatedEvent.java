@@ -0,0 +1,11 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Published by FlightGraphHolder after a new snapshot has been swapped in
+@Data
+@AllArgsConstructor
+public class FlightGraphUpdatedEvent {
+    private FlightGraph graph;
+}
@@ -0,0 +1,168 @@
+package com.example.pros.components;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Imports CSV or NDJSON flights line by line, committing chunk by chunk and reporting rejected lines
+@Service
+public class FlightImportService {
+
+    private static final String[] CSV_COLUMNS = {"source", "destination", "price"};
+
+    @Autowired
+    private FlightService flightService;
+
+    @Autowired
+    private FlightGraphHolder flightGraphHolder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${flights.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${flights.import.max-reported-rejections:1000}")
+    private int maxReportedRejections;
+
+    private record Row(long line, Flight flight) {
+    }
+
+    public FlightImportSummaryDto importFlights(InputStream body, boolean csv) throws IOException {
+        FlightImportSummaryDto summary = new FlightImportSummaryDto();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        boolean firstRow = true;
+        long lineNumber = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (csv && firstRow) {
+                    firstRow = false;
+                    if (isCsvHeader(line)) {
+                        continue;
+                    }
+                }
+
+                Flight flight;
+                try {
+                    flight = csv ? parseCsv(line) : parseJson(line);
+                    flightService.validateFlight(flight);
+                } catch (IllegalArgumentException e) {
+                    reject(summary, lineNumber, e.getMessage());
+                    continue;
+                }
+                chunk.add(new Row(lineNumber, flight));
+                if (chunk.size() == chunkSize) {
+                    commit(chunk, summary);
+                    chunk.clear();
+                }
+            }
+            commit(chunk, summary);
+        } finally {
+            if (summary.inserted > 0) {
+                flightGraphHolder.refresh();
+            }
+        }
+        return summary;
+    }
+
+    // Inserts one chunk in its own transaction; routes already in the database (including ones from
+    // earlier chunks) or repeated within the chunk are rejected
+    private void commit(List<Row> chunk, FlightImportSummaryDto summary) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<RejectedRowDto> rejections = new ArrayList<>();
+        List<Flight> accepted = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> existing = flightService.existingRoutes(chunk.stream().map(Row::flight).toList());
+                for (Row row : chunk) {
+                    Flight flight = row.flight();
+                    if (!existing.add(flight.getSource() + "-" + flight.getDestination())) {
+                        rejections.add(new RejectedRowDto(row.line(), "Flight from " + flight.getSource() + " to " + flight.getDestination() + " already exists."));
+                    } else {
+                        accepted.add(flight);
+                    }
+                }
+                flightService.insertFlights(accepted);
+            });
+        } catch (DataAccessException e) {
+            for (Row row : chunk) {
+                reject(summary, row.line(), "Chunk could not be saved: " + e.getMostSpecificCause().getMessage());
+            }
+            return;
+        }
+        summary.inserted += accepted.size();
+        for (RejectedRowDto rejection : rejections) {
+            reject(summary, rejection.line, rejection.reason);
+        }
+    }
+
+    private void reject(FlightImportSummaryDto summary, long line, String reason) {
+        summary.rejected++;
+        if (summary.rejections.size() < maxReportedRejections) {
+            summary.rejections.add(new RejectedRowDto(line, reason));
+        }
+    }
+
+    // The optional first row naming the columns, in any case; columns after price are ignored as in data rows
+    private static boolean isCsvHeader(String line) {
+        String[] names = line.split(",", -1);
+        return names.length >= CSV_COLUMNS.length
+                && unquote(names[0]).equalsIgnoreCase(CSV_COLUMNS[0])
+                && unquote(names[1]).equalsIgnoreCase(CSV_COLUMNS[1])
+                && unquote(names[2]).equalsIgnoreCase(CSV_COLUMNS[2]);
+    }
+
+    private static Flight parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < CSV_COLUMNS.length) {
+            throw new IllegalArgumentException("Expected source, destination and price");
+        }
+        String price = unquote(fields[2]);
+        try {
+            return new Flight(null, unquote(fields[0]), unquote(fields[1]),
+                    price.isEmpty() ? null : Integer.valueOf(price));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Price must be a whole number");
+        }
+    }
+
+    private static String unquote(String field) {
+        String value = field.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+
+    private Flight parseJson(String line) {
+        try {
+            Flight flight = objectMapper.readValue(line, Flight.class);
+            flight.setId(null);
+            return flight;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightImportSummaryDto {
+    public long inserted;
+    public long rejected;
+    public List<RejectedRowDto> rejections = new ArrayList<>(); // Capped; rejected holds the full count
+}
@@ -0,0 +1,117 @@
+package com.example.pros.components;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Micrometer meters for graph builds, route searches, bulk creation and flight listing
+@Component
+public class FlightMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<SearchMode, Timer> searchTimers = new EnumMap<>(SearchMode.class);
+    private final DistributionSummary nodesExpanded;
+    private final DistributionSummary edgesRelaxed;
+    private final DistributionSummary routesProduced;
+    private final Timer batchTimer;
+    private final Timer bulkCreateTimer;
+
+    public FlightMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (SearchMode mode : SearchMode.values()) {
+            searchTimers.put(mode, Timer.builder("flights.route.search")
+                    .description("Route searches by the search mode they ran with")
+                    .tag("mode", mode.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        nodesExpanded = summary("flights.route.search.nodes.expanded", "Airports whose flights a search scanned");
+        edgesRelaxed = summary("flights.route.search.edges.relaxed", "Flights a search looked at");
+        routesProduced = summary("flights.route.search.routes", "Routes a search returned");
+        batchTimer = Timer.builder("flights.route.batch")
+                .description("POST /api/routes/batch, all queries together")
+                .publishPercentileHistogram()
+                .register(registry);
+        bulkCreateTimer = Timer.builder("flights.bulk.create")
+                .description("Bulk flight creation, from validation to the graph refresh")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private DistributionSummary summary(String name, String description) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    // type is "full", "incremental" or "snapshot", or "hierarchy" / "reachability" for the search indexes
+    public void recordGraphBuild(Timer.Sample sample, String type) {
+        sample.stop(Timer.builder("flights.graph.build")
+                .description("Building or refreshing the route graph")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void recordSearch(Timer.Sample sample, SearchMode mode, SearchStats stats, int routes) {
+        sample.stop(searchTimers.get(mode));
+        nodesExpanded.record(stats.getNodesExpanded());
+        edgesRelaxed.record(stats.getEdgesRelaxed());
+        routesProduced.record(routes);
+    }
+
+    public void recordBatch(Timer.Sample sample) {
+        sample.stop(batchTimer);
+    }
+
+    public void recordBulkCreate(Timer.Sample sample) {
+        sample.stop(bulkCreateTimer);
+    }
+
+    // Current limit, running and queued requests, and rejections of an admission bulkhead
+    public void registerAdmissionLimiter(AdmissionLimiter limiter) {
+        Gauge.builder("flights.admission.limit", limiter, AdmissionLimiter::getLimit)
+                .description("Requests an admission bulkhead currently lets run at once")
+                .tag("bulkhead", limiter.getName())
+                .register(registry);
+        Gauge.builder("flights.admission.inflight", limiter, AdmissionLimiter::getInFlight)
+                .description("Requests running in an admission bulkhead")
+                .tag("bulkhead", limiter.getName())
+                .register(registry);
+        Gauge.builder("flights.admission.waiting", limiter, AdmissionLimiter::getWaiting)
+                .description("Requests queued for an admission bulkhead")
+                .tag("bulkhead", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("flights.admission.rejected", limiter, AdmissionLimiter::getRejected)
+                .description("Requests an admission bulkhead turned away with 429")
+                .tag("bulkhead", limiter.getName())
+                .register(registry);
+    }
+
+    public void registerCheapestRouteIndex(CheapestRouteIndex index) {
+        Gauge.builder("flights.route.index.memory", index, CheapestRouteIndex::memoryBytes)
+                .description("Bytes held by the cheapest route index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // type is "export" (the whole table as one array) or "page"
+    public void recordListing(Timer.Sample sample, String type) {
+        sample.stop(Timer.builder("flights.list")
+                .description("Listing flights")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
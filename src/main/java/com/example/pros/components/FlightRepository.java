@@ -1,8 +1,12 @@
 package com.example.pros.components;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,22 @@ public interface FlightRepository extends JpaRepository<Flight, Long> {
 
     Optional<Flight> findBySourceAndDestination(String source, String destination);
 
+    List<FlightRoute> findBySourceIn(Collection<String> sources);
+
+    // Graph loading: plain DTOs, so no managed entities, dirty checking or first-level cache entries
+    @Query("select new com.example.pros.components.FlightEdgeDto(f.source, f.destination, f.price) from Flight f"
+            + " where f.source is not null and f.destination is not null and f.price is not null order by f.id")
+    List<FlightEdgeDto> findAllEdges();
+
+    @Query("select new com.example.pros.components.FlightEdgeDto(f.source, f.destination, f.price) from Flight f"
+            + " where f.source in :sources and f.destination is not null and f.price is not null order by f.id")
+    List<FlightEdgeDto> findEdgesBySourceIn(@Param("sources") Collection<String> sources);
+
+    // Keyset page: the flights after the given id, in id order, optionally filtered
+    @Query("select f from Flight f where f.id > :after"
+            + " and (:source is null or f.source = :source)"
+            + " and (:destination is null or f.destination = :destination) order by f.id")
+    List<Flight> findPage(@Param("after") long after, @Param("source") String source,
+                          @Param("destination") String destination, Limit limit);
+
 }
@@ -0,0 +1,8 @@
+package com.example.pros.components;
+
+// Projection of just the route columns of a Flight, for duplicate checks that don't need whole entities
+public interface FlightRoute {
+    String getSource();
+
+    String getDestination();
+}
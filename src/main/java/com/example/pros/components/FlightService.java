@@ -1,16 +1,101 @@
 package com.example.pros.components;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.Supplier;
 
 @Service
 public class FlightService {
 
+    private static final HibernateJpaDialect JPA_DIALECT = new HibernateJpaDialect();
+
+    // Below this many flights a single depth-first walk is as cheap as meeting in the middle
+    private static final int BIDIRECTIONAL_MIN_FLIGHTS = 4;
+
     @Autowired
     private FlightRepository flightRepository;
 
+    @Autowired
+    private FlightGraphHolder flightGraphHolder;
+
+    @Autowired
+    private ParallelRouteSearch parallelRouteSearch;
+
+    @Autowired
+    private CheapestRouteIndex cheapestRouteIndex;
+
+    @Autowired
+    private RouteCache routeCache;
+
+    @Autowired
+    private FlightMetrics flightMetrics;
+
+    @Autowired
+    private RouteBatchExecutor routeBatchExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${flights.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
+    @Value("${flights.list.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${flights.search.batch.max-queries:100}")
+    private int maxBatchQueries;
+
+    @Value("${flights.search.budget.max-states:10000000}")
+    private long maxSearchStates;
+
+    @Value("${flights.search.budget.max-routes:100000}")
+    private long maxSearchRoutes;
+
+    @Value("${flights.search.budget.timeout-ms:10000}")
+    private long searchTimeoutMs;
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
     public Flight createFlight(Flight flight) {
+        Flight saved = saveFlight(flight);
+        flightGraphHolder.refresh();
+        return saved;
+    }
+
+    private Flight saveFlight(Flight flight) {
+        validateFlight(flight);
+        if (flightRepository.findBySourceAndDestination(flight.getSource(), flight.getDestination()).isPresent()) {
+            throw duplicateFlight(flight.getSource(), flight.getDestination());
+        }
+        return flightRepository.save(flight);
+    }
+
+    // The rules every new flight must satisfy that don't need the database
+    void validateFlight(Flight flight) {
         if (flight.getSource() == null || flight.getDestination() == null || flight.getPrice() == null) {
             throw new IllegalArgumentException("Source, destination and price cannot be null");
         }
@@ -20,61 +105,333 @@ public class FlightService {
         if (flight.getPrice() < 0) {
             throw new IllegalArgumentException("Price cannot be negative");
         }
-        if (flightRepository.findBySourceAndDestination(flight.getSource(), flight.getDestination()).isPresent()) {
-            throw new IllegalArgumentException("Flight from " + flight.getSource() + " to " + flight.getDestination() + " already exists.");
-        }
         if (flight.getDestination().length() != 3 || flight.getSource().length() != 3) {
             throw new IllegalArgumentException("Source and destination must be 3 characters long");
         }
-        return flightRepository.save(flight);
     }
 
-    // Builds a graph from DB flights and returns a map from source to list of FlightInfo
-    private Map<String, List<FlightInfoDto>> buildGraph() {
-        Map<String, List<FlightInfoDto>> graph = new HashMap<>();
-        List<Flight> flights = flightRepository.findAll();
+    private static IllegalArgumentException duplicateFlight(String source, String destination) {
+        return new IllegalArgumentException("Flight from " + source + " to " + destination + " already exists.");
+    }
+
+    private static String routeKey(String source, String destination) {
+        return source + "-" + destination;
+    }
+
+    // Routes ("SRC-DST") among the given flights that already exist, looked up with one query per
+    // thousand distinct source airports instead of one query per flight
+    Set<String> existingRoutes(Collection<Flight> flights) {
+        Set<String> sources = new HashSet<>();
         for (Flight flight : flights) {
-            graph.computeIfAbsent(flight.getSource(), k -> new ArrayList<>())
-                    .add(new FlightInfoDto(flight.getDestination(), flight.getPrice()));
+            sources.add(flight.getSource());
+        }
+        Set<String> existing = new HashSet<>();
+        List<String> sourceList = new ArrayList<>(sources);
+        for (int from = 0; from < sourceList.size(); from += 1000) {
+            for (FlightRoute route : flightRepository.findBySourceIn(sourceList.subList(from, Math.min(from + 1000, sourceList.size())))) {
+                existing.add(routeKey(route.getSource(), route.getDestination()));
+            }
+        }
+        return existing;
+    }
+
+    // Persists already validated flights in the current transaction, flushing every batch so Hibernate
+    // sends JDBC batches and the persistence context stays small. A route inserted concurrently by another
+    // writer surfaces as a DataIntegrityViolationException.
+    void insertFlights(List<Flight> flights) {
+        try {
+            for (int i = 0; i < flights.size(); i++) {
+                entityManager.persist(flights.get(i));
+                if ((i + 1) % bulkBatchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } catch (RuntimeException e) {
+            // The container's EntityManager bypasses repository exception translation
+            throw DataAccessUtils.translateIfNecessary(e, JPA_DIALECT);
         }
-        return graph;
     }
 
     public List<Route> findRoutes(String origin, String destination, Integer maxFlights) {
-        maxFlights = (maxFlights != null) ? maxFlights : -1;
-        Map<String, List<FlightInfoDto>> graph = buildGraph();
-        List<Route> routes = new ArrayList<>();
+        return findRoutes(new RouteRequestDto(origin, destination, maxFlights)).getRoutes();
+    }
 
-        dfs(graph, origin, destination, new ArrayList<>(List.of(origin)), 0, routes, maxFlights); // Fix: Create new list for each path
+    public RouteSearchResult findRoutes(RouteRequestDto request) {
+        PreparedRouteSearch search = prepareSearch(request);
+        return routeCache.get(new RouteCacheKey(request, search.getGraphVersion()), () -> collect(search));
+    }
+
+    private RouteSearchResult collect(PreparedRouteSearch search) {
+        Timer.Sample sample = flightMetrics.start();
+        List<Route> routes = search.collect();
+        flightMetrics.recordSearch(sample, search.getMode(), search.getStats(), routes.size());
+        return new RouteSearchResult(routes, search.getGraphVersion(), search.getStats(), search.getTruncatedBy());
+    }
 
-        routes.sort(Comparator.comparingInt(r -> r.totalPrice));
-        return routes;
+    // Runs a prepared search into the sink (see PreparedRouteSearch.stream) and records its metrics
+    public void streamRoutes(PreparedRouteSearch search, RouteSink sink) {
+        Timer.Sample sample = flightMetrics.start();
+        int[] routes = {0};
+        search.stream(route -> {
+            routes[0]++;
+            return sink.accept(route);
+        });
+        flightMetrics.recordSearch(sample, search.getMode(), search.getStats(), routes[0]);
     }
 
-    private void dfs(Map<String, List<FlightInfoDto>> graph, String current, String destination,
-                     List<String> currentPath, int currentPrice, List<Route> routes, int maxFlights) {
+    // Validates the request and binds it to the current graph snapshot without searching yet
+    public PreparedRouteSearch prepareSearch(RouteRequestDto request) {
+        return prepareSearch(flightGraphHolder.get(), request);
+    }
 
-        if (current.equals(destination)) {
-            routes.add(new Route(new ArrayList<>(currentPath), currentPrice)); // Fix: Create a copy of the path
-            return;
+    private PreparedRouteSearch prepareSearch(FlightGraph graph, RouteRequestDto request) {
+        if (request.limit != null && request.limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        if (request.maxPrice != null && request.maxPrice < 0) {
+            throw new IllegalArgumentException("Max price cannot be negative");
+        }
+        if ((request.maxStates != null && request.maxStates < 1) || (request.maxRoutes != null && request.maxRoutes < 1)
+                || (request.timeoutMs != null && request.timeoutMs < 1)) {
+            throw new IllegalArgumentException("Search budget limits must be at least 1");
         }
+        if (Objects.equals(request.origin, request.destination)) {
+            return new PreparedRouteSearch(graph, null, SearchMode.EXHAUSTIVE, request.origin, parallelRouteSearch,
+                    cheapestRouteIndex);
+        }
+        RouteQuery query = resolveQuery(graph, request);
+        return new PreparedRouteSearch(graph, query, resolveMode(request, query), null, parallelRouteSearch,
+                cheapestRouteIndex);
+    }
 
-        if (maxFlights != -1 && currentPath.size() - 1 >= maxFlights) {
-            return;
+    // Returns null when no route can exist: origin or destination has no flights at all, or the
+    // snapshot's ReachabilityIndex (once built) rules the pair out
+    private RouteQuery resolveQuery(FlightGraph graph, RouteRequestDto request) {
+        int origin = graph.airportId(request.origin);
+        int destination = graph.airportId(request.destination);
+        int maxFlights = request.maxFlights != null ? request.maxFlights : RouteQuery.UNLIMITED;
+        if (origin < 0 || destination < 0) {
+            return null;
+        }
+        ReachabilityIndex reachability = graph.reachability();
+        if (reachability != null && !reachability.mayConnect(origin, destination, maxFlights)) {
+            return null;
         }
+        return new RouteQuery(graph, origin, destination, maxFlights,
+                request.maxPrice != null ? request.maxPrice : Integer.MAX_VALUE,
+                request.limit != null ? request.limit : Integer.MAX_VALUE,
+                budgetFor(request));
+    }
 
-        if (!graph.containsKey(current)) {
-            return;
+    // The server-wide limits, tightened by the request's own
+    private SearchBudget budgetFor(RouteRequestDto request) {
+        long timeout = searchTimeoutMs;
+        if (request.timeoutMs != null) {
+            timeout = timeout > 0 ? Math.min(timeout, request.timeoutMs) : request.timeoutMs;
         }
+        return new SearchBudget(
+                request.maxStates != null ? Math.min(request.maxStates, maxSearchStates) : maxSearchStates,
+                request.maxRoutes != null ? Math.min(request.maxRoutes, maxSearchRoutes) : maxSearchRoutes,
+                timeout);
+    }
 
-        for (FlightInfoDto flight : graph.get(current)) {
-            currentPath.add(flight.destination);
-            dfs(graph, flight.destination, destination, currentPath, currentPrice + flight.price, routes, maxFlights);
-            currentPath.remove(currentPath.size() - 1);
+    private SearchMode resolveMode(RouteRequestDto request, RouteQuery query) {
+        if (request.mode != null && request.mode != SearchMode.AUTO) {
+            return request.mode;
+        }
+        if (request.limit != null && request.limit == 1 && request.maxFlights == null) {
+            return SearchMode.CHEAPEST;
         }
+        if (request.limit != null) {
+            return SearchMode.BEST_FIRST;
+        }
+        if (request.maxFlights != null && request.maxFlights >= BIDIRECTIONAL_MIN_FLIGHTS) {
+            return SearchMode.BIDIRECTIONAL;
+        }
+        return query != null && parallelRouteSearch.worthParallelizing(query) ? SearchMode.PARALLEL : SearchMode.EXHAUSTIVE;
     }
 
+    // Runs all queries against one snapshot. Exhaustive queries sharing an origin are answered by one forward
+    // walk, remaining ones sharing a destination by one backward walk; everything else (including queries
+    // with a search budget of their own) runs on its own.
+    public RouteBatchResult findRoutesBatch(List<RouteRequestDto> requests) {
+        if (requests.size() > maxBatchQueries) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxBatchQueries + " queries");
+        }
+        Timer.Sample sample = flightMetrics.start();
+        FlightGraph graph = flightGraphHolder.get();
+        List<PreparedRouteSearch> searches = new ArrayList<>();
+        for (RouteRequestDto request : requests) {
+            searches.add(prepareSearch(graph, request));
+        }
+
+        List<List<Route>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<String> truncatedBy = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        Map<Integer, List<Integer>> byOrigin = new LinkedHashMap<>();
+        for (int i = 0; i < searches.size(); i++) {
+            if (searches.get(i).isShareable() && !hasOwnBudget(requests.get(i))) {
+                byOrigin.computeIfAbsent(searches.get(i).getQuery().origin, k -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<Integer, List<Integer>> byDestination = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Integer>> group : byOrigin.entrySet()) {
+            if (group.getValue().size() > 1) {
+                runShared(graph, group.getKey(), false, group.getValue(), searches, results, truncatedBy);
+            } else {
+                int i = group.getValue().get(0);
+                byDestination.computeIfAbsent(searches.get(i).getQuery().destination, k -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> group : byDestination.entrySet()) {
+            if (group.getValue().size() > 1) {
+                runShared(graph, group.getKey(), true, group.getValue(), searches, results, truncatedBy);
+            }
+        }
+
+        // Everything not answered by a shared walk runs on its own, concurrently
+        List<Integer> remaining = new ArrayList<>();
+        List<Supplier<RouteSearchResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (results.get(i) == null) {
+                PreparedRouteSearch search = searches.get(i);
+                remaining.add(i);
+                tasks.add(() -> collect(search));
+            }
+        }
+        List<RouteSearchResult> separate = routeBatchExecutor.invokeAll(tasks);
+        for (int r = 0; r < remaining.size(); r++) {
+            int i = remaining.get(r);
+            results.set(i, separate.get(r).getRoutes());
+            truncatedBy.set(i, searches.get(i).getTruncatedBy());
+        }
+
+        List<RouteBatchEntryDto> entries = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            entries.add(new RouteBatchEntryDto(i, requests.get(i), results.get(i), truncatedBy.get(i)));
+        }
+        flightMetrics.recordBatch(sample);
+        return new RouteBatchResult(entries, graph.getVersion());
+    }
+
+    private static boolean hasOwnBudget(RouteRequestDto request) {
+        return request.maxStates != null || request.maxRoutes != null || request.timeoutMs != null;
+    }
+
+    // A shared walk serves several requests, so it runs under the server-wide budget only. It is recorded
+    // as one exhaustive search producing all of its members' routes.
+    private void runShared(FlightGraph graph, int root, boolean backward, List<Integer> indexes,
+                           List<PreparedRouteSearch> searches, List<List<Route>> results, List<String> truncatedBy) {
+        Timer.Sample sample = flightMetrics.start();
+        List<SharedRouteSearch.Member> members = new ArrayList<>();
+        for (int i : indexes) {
+            members.add(new SharedRouteSearch.Member(searches.get(i).getQuery(), backward));
+        }
+        SearchBudget budget = new SearchBudget(maxSearchStates, maxSearchRoutes, searchTimeoutMs);
+        SearchStats stats = new SearchStats();
+        SharedRouteSearch.search(graph, root, backward, members, budget, stats);
+        int routes = 0;
+        for (int m = 0; m < indexes.size(); m++) {
+            results.set(indexes.get(m), members.get(m).getRoutes());
+            truncatedBy.set(indexes.get(m), budget.getTruncatedBy());
+            routes += members.get(m).getRoutes().size();
+        }
+        flightMetrics.recordSearch(sample, SearchMode.EXHAUSTIVE, stats, routes);
+    }
+
+    // All or nothing: the whole batch is validated in memory and checked for duplicates (within the batch
+    // and against the database) before anything is written, then inserted in one transaction
     public List<Flight> bulkCreateFlights(List<Flight> flights) {
-        return flights.stream().map(this::createFlight).toList();
+        Timer.Sample sample = flightMetrics.start();
+        Set<String> routes = new HashSet<>();
+        for (int i = 0; i < flights.size(); i++) {
+            Flight flight = flights.get(i);
+            try {
+                validateFlight(flight);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Flight #" + (i + 1) + ": " + e.getMessage());
+            }
+            if (!routes.add(routeKey(flight.getSource(), flight.getDestination()))) {
+                throw new IllegalArgumentException("Flight from " + flight.getSource() + " to " + flight.getDestination() + " appears more than once.");
+            }
+            flight.setId(null);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> existing = existingRoutes(flights);
+            for (Flight flight : flights) {
+                if (existing.contains(routeKey(flight.getSource(), flight.getDestination()))) {
+                    throw duplicateFlight(flight.getSource(), flight.getDestination());
+                }
+            }
+            insertFlights(flights);
+        });
+        flightGraphHolder.refresh();
+        flightMetrics.recordBulkCreate(sample);
+        return flights;
+    }
+
+    // One keyset page of flights with ids greater than after (null for the first page)
+    // limit defaults to the largest page, so a plain listing stays bounded however large the table gets
+    public List<Flight> getFlightsPage(Long after, Integer limit, String source, String destination) {
+        int pageSize = limit != null ? limit : maxPageSize;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        Timer.Sample sample = flightMetrics.start();
+        List<Flight> page = readPage(after, pageSize, source, destination);
+        flightMetrics.recordListing(sample, "page");
+        return page;
+    }
+
+    // One keyset page in its own short read-only transaction, detached so the persistence context stays empty
+    private List<Flight> readPage(Long after, int limit, String source, String destination) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            List<Flight> page = flightRepository.findPage(after != null ? after : Long.MIN_VALUE, source, destination,
+                    Limit.of(limit));
+            page.forEach(entityManager::detach);
+            return page;
+        });
+    }
+
+    // First page of an export; read before the response is committed, so a failing database still gets an error status
+    public List<Flight> firstExportPage(String source, String destination) {
+        return readPage(null, maxPageSize, source, destination);
+    }
+
+    // Writes every flight as one JSON array, continuing from firstExportPage() one keyset page at a time.
+    // No transaction or connection is held while the client reads. A failure midway leaves the array
+    // unclosed and aborts the response, so a partial export never parses as a complete one.
+    public void writeFlights(List<Flight> firstPage, String source, String destination, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        Timer.Sample sample = flightMetrics.start();
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        try {
+            json.writeStartArray();
+            List<Flight> page = firstPage;
+            while (!page.isEmpty()) {
+                for (Flight flight : page) {
+                    writer.writeValue(json, flight);
+                }
+                json.flush();
+                page = page.size() < maxPageSize ? List.of()
+                        : readPage(page.get(page.size() - 1).getId(), maxPageSize, source, destination);
+            }
+            json.writeEndArray();
+        } finally {
+            json.close();
+            flightMetrics.recordListing(sample, "export");
+        }
+    }
+
+    public void deleteAllFlights() {
+        flightRepository.deleteAll();
+        flightGraphHolder.refresh();
     }
 }
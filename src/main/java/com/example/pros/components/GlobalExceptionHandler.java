@@ -1,5 +1,8 @@
 package com.example.pros.components;
 
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,4 +15,31 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
+
+    // The schema enforces one flight per route, which also catches concurrent creates that both passed
+    // FlightService's duplicate check
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        String cause = String.valueOf(ex.getMostSpecificCause().getMessage());
+        if (cause.toLowerCase().contains(Flight.ROUTE_CONSTRAINT)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Flight with the same source and destination already exists.");
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request violates a data constraint.");
+    }
+
+    // Admission control turned the request away before it did any work; clients should back off
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<String> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    // ResponseStreamExecutor is full: too many streamed responses in progress
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejectedException(TaskRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many streamed responses in progress, retry later.");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.example.pros.components;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Exhaustive search split across a ForkJoinPool, sharing one SearchBudget
+@Component
+public class ParallelRouteSearch {
+
+    // Keep splitting while this thread has at most this many unclaimed tasks queued
+    private static final int SURPLUS_TASKS = 2;
+
+    private final ForkJoinPool pool;
+    private final boolean enabled;
+    private final int threshold;
+
+    public ParallelRouteSearch(@Value("${flights.search.parallel.enabled:true}") boolean enabled,
+                               @Value("${flights.search.parallel.threshold:256}") int threshold,
+                               @Value("${flights.search.parallel.parallelism:0}") int parallelism) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Whether an exhaustive search is big enough to be worth splitting, judged by the number of
+    // second-hop flights reachable from the origin (a cheap proxy for the size of the search tree)
+    public boolean worthParallelizing(RouteQuery query) {
+        if (!enabled || query.maxFlights == 0 || query.maxFlights == 1) {
+            return false;
+        }
+        FlightGraph graph = query.graph;
+        long branches = 0;
+        for (int flight = graph.firstFlight(query.origin), end = graph.endFlight(query.origin); flight < end; flight++) {
+            int next = graph.target(flight);
+            branches += graph.endFlight(next) - graph.firstFlight(next);
+        }
+        return branches >= threshold;
+    }
+
+    // Routes sorted by price, at most query.limit of them
+    public List<Route> search(RouteQuery query) {
+        int[] remaining = query.graph.cheapestPricesTo(query.destination);
+        if (remaining[query.origin] == FlightGraph.UNREACHABLE || remaining[query.origin] > query.maxPrice) {
+            return new ArrayList<>();
+        }
+        List<Route> routes = pool.invoke(new BranchTask(query, remaining, new int[] {query.origin}, 1, 0)).toList();
+        routes.sort(Comparator.comparingInt(r -> r.totalPrice));
+        return routes;
+    }
+
+    // Keeps every route, or only the query.limit cheapest ones in a max-heap; stops accepting routes
+    // once the budget runs out
+    private static class RouteCollector implements RouteSink {
+        private final int limit;
+        private final SearchBudget budget;
+        private final List<Route> all;
+        private final PriorityQueue<Route> cheapest;
+
+        RouteCollector(int limit, SearchBudget budget) {
+            this.limit = limit;
+            this.budget = budget;
+            if (limit == Integer.MAX_VALUE) {
+                all = new ArrayList<>();
+                cheapest = null;
+            } else {
+                all = null;
+                cheapest = new PriorityQueue<>(Comparator.comparingInt((Route r) -> r.totalPrice).reversed());
+            }
+        }
+
+        @Override
+        public boolean accept(Route route) {
+            if (!budget.countRoute()) {
+                return false;
+            }
+            add(route);
+            return true;
+        }
+
+        private void add(Route route) {
+            if (all != null) {
+                all.add(route);
+            } else if (cheapest.size() < limit) {
+                cheapest.add(route);
+            } else if (route.totalPrice < cheapest.peek().totalPrice) {
+                cheapest.poll();
+                cheapest.add(route);
+            }
+        }
+
+        // Routes from another task were counted against the budget when that task found them
+        void addAll(RouteCollector other) {
+            for (Route route : other.toList()) {
+                add(route);
+            }
+        }
+
+        List<Route> toList() {
+            return new ArrayList<>(all != null ? all : cheapest);
+        }
+    }
+
+    private static class BranchTask extends RecursiveTask<RouteCollector> {
+        private final RouteQuery query;
+        private final int[] remaining;
+        private final int[] prefix;
+        private final int prefixLength;
+        private final int prefixPrice;
+
+        BranchTask(RouteQuery query, int[] remaining, int[] prefix, int prefixLength, int prefixPrice) {
+            this.query = query;
+            this.remaining = remaining;
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+            this.prefixPrice = prefixPrice;
+        }
+
+        @Override
+        protected RouteCollector compute() {
+            RouteCollector routes = new RouteCollector(query.limit, query.budget);
+            if (!query.budget.charge(0)) {
+                return routes;
+            }
+            boolean split = query.canTakeMoreFlights(prefixLength) // children could still take another flight
+                    && (prefixLength == 1 || getSurplusQueuedTaskCount() <= SURPLUS_TASKS);
+            if (!split) {
+                DepthFirstRouteSearch.searchFrom(query, remaining, prefix, prefixLength, prefixPrice, routes);
+                return routes;
+            }
+
+            FlightGraph graph = query.graph;
+            int current = prefix[prefixLength - 1];
+            int[] fewest = query.maxFlights != RouteQuery.UNLIMITED ? graph.fewestFlightsTo(query.destination) : null;
+            List<BranchTask> children = new ArrayList<>();
+            int end = graph.endFlight(current);
+            query.stats.add(1, end - graph.firstFlight(current));
+            query.budget.charge(1);
+            for (int flight = graph.firstFlight(current); flight < end; flight++) {
+                int next = graph.target(flight);
+                if (remaining[next] == FlightGraph.UNREACHABLE || contains(prefix, prefixLength, next)
+                        || (fewest != null && prefixLength + fewest[next] > query.maxFlights)) {
+                    continue;
+                }
+                int price = prefixPrice + graph.price(flight);
+                if ((long) price + remaining[next] > query.maxPrice) {
+                    continue;
+                }
+                int[] childPrefix = Arrays.copyOf(prefix, prefixLength + 1);
+                childPrefix[prefixLength] = next;
+                if (next == query.destination) {
+                    routes.accept(new Route(graph.toCities(childPrefix, childPrefix.length), price));
+                } else {
+                    children.add(new BranchTask(query, remaining, childPrefix, prefixLength + 1, price));
+                }
+            }
+            for (BranchTask child : invokeAll(children)) {
+                routes.addAll(child.join());
+            }
+            return routes;
+        }
+
+        private static boolean contains(int[] prefix, int length, int airport) {
+            for (int i = 0; i < length; i++) {
+                if (prefix[i] == airport) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
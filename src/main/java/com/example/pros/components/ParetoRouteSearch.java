@@ -0,0 +1,114 @@
+package com.example.pros.components;
+
+import java.util.Arrays;
+
+// Produces the cheapest route for every number of flights not beaten by fewer flights
+public class ParetoRouteSearch {
+
+    public static void search(RouteQuery query, RouteSink sink) {
+        FlightGraph graph = query.graph;
+        int[] remaining = graph.cheapestPricesTo(query.destination);
+        if (remaining[query.origin] == FlightGraph.UNREACHABLE || remaining[query.origin] > query.maxPrice) {
+            return;
+        }
+
+        int airports = graph.airportCount();
+        // Cheapest label of each airport so far, over all rounds
+        int[] best = new int[airports];
+        Arrays.fill(best, FlightGraph.UNREACHABLE);
+        best[query.origin] = 0;
+        // Cheapest candidate of each airport in the current round and the label it extends
+        int[] roundPrice = new int[airports];
+        Arrays.fill(roundPrice, FlightGraph.UNREACHABLE);
+        int[] roundPrevious = new int[airports];
+        int[] touched = new int[airports];
+
+        // Labels as parallel arrays; label 0 is the origin
+        int[] labelAirport = new int[16];
+        int[] labelPrice = new int[16];
+        int[] labelPrevious = new int[16];
+        labelAirport[0] = query.origin;
+        labelPrevious[0] = -1;
+        int labels = 1;
+
+        int[] frontier = {0};
+        int frontierSize = 1;
+        int flights = 0;
+        long expanded = 0;
+        long relaxed = 0;
+        try {
+            while (frontierSize > 0 && query.canTakeMoreFlights(flights)) {
+                flights++;
+                int touchedCount = 0;
+                for (int f = 0; f < frontierSize; f++) {
+                    int label = frontier[f];
+                    int airport = labelAirport[label];
+                    int price = labelPrice[label];
+                    // The destination may have gained a cheaper route since this label was made
+                    if ((long) price + remaining[airport] >= best[query.destination]) {
+                        continue;
+                    }
+                    if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !query.budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                        return;
+                    }
+                    for (int flight = graph.firstFlight(airport), end = graph.endFlight(airport); flight < end; flight++) {
+                        relaxed++;
+                        int next = graph.target(flight);
+                        if (remaining[next] == FlightGraph.UNREACHABLE) {
+                            continue;
+                        }
+                        int nextPrice = price + graph.price(flight);
+                        long estimate = (long) nextPrice + remaining[next];
+                        if (nextPrice >= best[next] || nextPrice >= roundPrice[next] || estimate > query.maxPrice
+                                || estimate >= best[query.destination]) {
+                            continue;
+                        }
+                        if (roundPrice[next] == FlightGraph.UNREACHABLE) {
+                            touched[touchedCount++] = next;
+                        }
+                        roundPrice[next] = nextPrice;
+                        roundPrevious[next] = label;
+                    }
+                }
+
+                if (labels + touchedCount > labelAirport.length) {
+                    int capacity = Math.max(labelAirport.length * 2, labels + touchedCount);
+                    labelAirport = Arrays.copyOf(labelAirport, capacity);
+                    labelPrice = Arrays.copyOf(labelPrice, capacity);
+                    labelPrevious = Arrays.copyOf(labelPrevious, capacity);
+                }
+                int[] nextFrontier = new int[touchedCount];
+                frontierSize = 0;
+                for (int t = 0; t < touchedCount; t++) {
+                    int airport = touched[t];
+                    int label = labels++;
+                    labelAirport[label] = airport;
+                    labelPrice[label] = roundPrice[airport];
+                    labelPrevious[label] = roundPrevious[airport];
+                    best[airport] = roundPrice[airport];
+                    roundPrice[airport] = FlightGraph.UNREACHABLE;
+                    if (airport == query.destination) {
+                        if (!sink.accept(toRoute(graph, label, flights, labelAirport, labelPrice, labelPrevious))) {
+                            return;
+                        }
+                    } else {
+                        nextFrontier[frontierSize++] = label;
+                    }
+                }
+                frontier = nextFrontier;
+            }
+        } finally {
+            query.stats.add(expanded, relaxed);
+            query.budget.settle(expanded % SearchBudget.CHARGE_INTERVAL);
+        }
+    }
+
+    private static Route toRoute(FlightGraph graph, int last, int flights, int[] labelAirport, int[] labelPrice,
+                                 int[] labelPrevious) {
+        int[] path = new int[flights + 1];
+        for (int label = last, i = flights; label >= 0; label = labelPrevious[label], i--) {
+            path[i] = labelAirport[label];
+        }
+        return new Route(graph.toCities(path, path.length), labelPrice[last]);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.pros.components;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// A validated route request bound to the FlightGraph snapshot it will run against
+public class PreparedRouteSearch {
+
+    private final FlightGraph graph;
+    private final RouteQuery query; // null when no route can exist
+    private final SearchMode mode;
+    private final String sameAirport; // set when origin equals destination
+    private final ParallelRouteSearch parallelSearch;
+    private final CheapestRouteIndex cheapestRouteIndex;
+
+    PreparedRouteSearch(FlightGraph graph, RouteQuery query, SearchMode mode, String sameAirport,
+                        ParallelRouteSearch parallelSearch, CheapestRouteIndex cheapestRouteIndex) {
+        this.graph = graph;
+        this.query = query;
+        this.mode = mode;
+        this.sameAirport = sameAirport;
+        this.parallelSearch = parallelSearch;
+        this.cheapestRouteIndex = cheapestRouteIndex;
+    }
+
+    public long getGraphVersion() {
+        return graph.getVersion();
+    }
+
+    RouteQuery getQuery() {
+        return query;
+    }
+
+    public SearchMode getMode() {
+        return mode;
+    }
+
+    // Work done by the search so far; empty when no search is needed
+    public SearchStats getStats() {
+        return query != null ? query.stats : new SearchStats();
+    }
+
+    // The SearchBudget limit that cut the search short, or null if its routes are complete
+    public String getTruncatedBy() {
+        return query != null ? query.budget.getTruncatedBy() : null;
+    }
+
+    // Whether the query can be answered by SharedRouteSearch together with others:
+    // a full enumeration (no limit) between two known, distinct airports
+    boolean isShareable() {
+        return query != null && query.limit == Integer.MAX_VALUE && mode != SearchMode.PARETO
+                && mode != SearchMode.CHEAPEST;
+    }
+
+    // Routes sorted by price, at most query.limit of them
+    public List<Route> collect() {
+        List<Route> routes = new ArrayList<>();
+        if (sameAirport != null) {
+            routes.add(new Route(new ArrayList<>(List.of(sameAirport)), 0));
+            return routes;
+        }
+        if (query == null) {
+            return routes;
+        }
+        if (mode == SearchMode.PARALLEL) {
+            return parallelSearch.search(query);
+        }
+        run(routes::add);
+        if (mode == SearchMode.BEST_FIRST) {
+            return routes;
+        }
+        routes.sort(Comparator.comparingInt(r -> r.totalPrice));
+        if (routes.size() > query.limit) {
+            routes = new ArrayList<>(routes.subList(0, query.limit));
+        }
+        return routes;
+    }
+
+    // Pushes routes to the sink as they are found. Best-first searches arrive in price order, Pareto
+    // searches in order of flights; exhaustive searches arrive in discovery order unless a limit forces
+    // them to be sorted first.
+    // Parallel searches are merged before anything is pushed, so they arrive sorted.
+    public void stream(RouteSink sink) {
+        if (sameAirport != null || query == null || mode == SearchMode.PARALLEL
+                || (mode != SearchMode.BEST_FIRST && query.limit != Integer.MAX_VALUE)) {
+            for (Route route : collect()) {
+                if (!sink.accept(route)) {
+                    return;
+                }
+            }
+            return;
+        }
+        run(sink);
+    }
+
+    private void run(RouteSink sink) {
+        RouteSink budgeted = route -> query.budget.countRoute() && sink.accept(route);
+        switch (mode) {
+            case BEST_FIRST -> BestFirstRouteSearch.search(query, budgeted);
+            case BIDIRECTIONAL -> BidirectionalRouteSearch.search(query, budgeted);
+            case PARETO -> ParetoRouteSearch.search(query, budgeted);
+            case CHEAPEST -> cheapestRouteIndex.search(query, budgeted);
+            default -> DepthFirstRouteSearch.search(query, budgeted);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.pros.components;
+
+import java.util.Arrays;
+
+// Strongly connected components and landmark bounds deciding whether two airports can connect
+public class ReachabilityIndex {
+
+    // Upper bound on the closure bitsets, in longs across all components (8 MB)
+    static final int MAX_CLOSURE_WORDS = 1 << 20;
+
+    static final int LANDMARKS = 8;
+
+    private final int[] component;
+    private final int components;
+    private final int words; // longs per closure row
+    private final long[] closure; // null when there are too many components
+    private final int[][] fromLandmark; // fewest flights from each landmark, FlightGraph.UNREACHABLE if none
+    private final int[][] toLandmark; // fewest flights to each landmark
+    private final long buildNanos;
+
+    private ReachabilityIndex(int[] component, int components, long[] closure, int[][] fromLandmark,
+                              int[][] toLandmark, long buildNanos) {
+        this.component = component;
+        this.components = components;
+        this.words = (components + 63) >>> 6;
+        this.closure = closure;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        this.buildNanos = buildNanos;
+    }
+
+    public static ReachabilityIndex build(FlightGraph graph) {
+        long started = System.nanoTime();
+        int airports = graph.airportCount();
+        int[] component = new int[airports];
+        int components = findComponents(graph, component);
+
+        long[] closure = null;
+        int words = (components + 63) >>> 6;
+        if ((long) components * words <= MAX_CLOSURE_WORDS) {
+            closure = buildClosure(graph, component, components, words);
+        }
+
+        int landmarks = Math.min(LANDMARKS, airports);
+        int[][] fromLandmark = new int[landmarks][];
+        int[][] toLandmark = new int[landmarks][];
+        chooseLandmarks(graph, fromLandmark, toLandmark);
+        return new ReachabilityIndex(component, components, closure, fromLandmark, toLandmark,
+                System.nanoTime() - started);
+    }
+
+    // Iterative Tarjan: fills component[] and returns the number of components
+    private static int findComponents(FlightGraph graph, int[] component) {
+        int airports = graph.airportCount();
+        int[] index = new int[airports];
+        int[] low = new int[airports];
+        int[] cursor = new int[airports];
+        int[] stack = new int[airports];
+        int[] calls = new int[airports];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int counter = 0;
+        int components = 0;
+        int stackSize = 0;
+
+        for (int start = 0; start < airports; start++) {
+            if (index[start] != -1) {
+                continue;
+            }
+            int callDepth = 0;
+            index[start] = low[start] = counter++;
+            stack[stackSize++] = start;
+            cursor[start] = graph.firstFlight(start);
+            calls[callDepth++] = start;
+            while (callDepth > 0) {
+                int airport = calls[callDepth - 1];
+                if (cursor[airport] < graph.endFlight(airport)) {
+                    int next = graph.target(cursor[airport]++);
+                    if (index[next] == -1) {
+                        index[next] = low[next] = counter++;
+                        stack[stackSize++] = next;
+                        cursor[next] = graph.firstFlight(next);
+                        calls[callDepth++] = next;
+                    } else if (component[next] == -1) {
+                        // Visited but not yet assigned, so still on the stack
+                        low[airport] = Math.min(low[airport], index[next]);
+                    }
+                    continue;
+                }
+                callDepth--;
+                if (callDepth > 0) {
+                    int caller = calls[callDepth - 1];
+                    low[caller] = Math.min(low[caller], low[airport]);
+                }
+                if (low[airport] == index[airport]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        component[member] = components;
+                    } while (member != airport);
+                    components++;
+                }
+            }
+        }
+        return components;
+    }
+
+    // Row c has bit d set when component c reaches component d. Components only reach lower-numbered
+    // ones, so each row is the union of rows already complete.
+    private static long[] buildClosure(FlightGraph graph, int[] component, int components, int words) {
+        int airports = graph.airportCount();
+        // Airports grouped by component (counting sort)
+        int[] offsets = new int[components + 1];
+        for (int airport = 0; airport < airports; airport++) {
+            offsets[component[airport] + 1]++;
+        }
+        for (int c = 0; c < components; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] next = Arrays.copyOf(offsets, components);
+        int[] members = new int[airports];
+        for (int airport = 0; airport < airports; airport++) {
+            members[next[component[airport]]++] = airport;
+        }
+
+        long[] closure = new long[components * words];
+        int[] merged = new int[components];
+        Arrays.fill(merged, -1);
+        for (int c = 0; c < components; c++) {
+            int row = c * words;
+            closure[row + (c >>> 6)] |= 1L << c;
+            for (int m = offsets[c]; m < offsets[c + 1]; m++) {
+                int airport = members[m];
+                for (int flight = graph.firstFlight(airport), end = graph.endFlight(airport); flight < end; flight++) {
+                    int d = component[graph.target(flight)];
+                    if (d == c || merged[d] == c || (closure[row + (d >>> 6)] & (1L << d)) != 0) {
+                        // Same component, or everything d reaches is already in the row
+                        continue;
+                    }
+                    merged[d] = c;
+                    int other = d * words;
+                    // d < c, so its row has no bits at or above word (d >>> 6) + 1
+                    for (int w = 0, last = d >>> 6; w <= last; w++) {
+                        closure[row + w] |= closure[other + w];
+                    }
+                }
+            }
+        }
+        return closure;
+    }
+
+    // Farthest-first: the busiest airport, then repeatedly the airport farthest (in flights there and
+    // back) from every landmark chosen so far, with airports some landmark cannot reach counting as farthest
+    private static void chooseLandmarks(FlightGraph graph, int[][] fromLandmark, int[][] toLandmark) {
+        int airports = graph.airportCount();
+        if (fromLandmark.length == 0) {
+            return;
+        }
+        int landmark = 0;
+        int busiest = -1;
+        for (int airport = 0; airport < airports; airport++) {
+            int degree = graph.endFlight(airport) - graph.firstFlight(airport)
+                    + graph.endIncoming(airport) - graph.firstIncoming(airport);
+            if (degree > busiest) {
+                busiest = degree;
+                landmark = airport;
+            }
+        }
+        long[] distance = new long[airports];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        int[] queue = new int[airports];
+        for (int l = 0; l < fromLandmark.length; l++) {
+            fromLandmark[l] = fewestFlights(graph, landmark, false, queue);
+            toLandmark[l] = fewestFlights(graph, landmark, true, queue);
+            int farthest = -1;
+            for (int airport = 0; airport < airports; airport++) {
+                long there = fromLandmark[l][airport] != FlightGraph.UNREACHABLE ? fromLandmark[l][airport] : airports;
+                long back = toLandmark[l][airport] != FlightGraph.UNREACHABLE ? toLandmark[l][airport] : airports;
+                distance[airport] = Math.min(distance[airport], there + back);
+                if (farthest == -1 || distance[airport] > distance[farthest]) {
+                    farthest = airport;
+                }
+            }
+            landmark = farthest;
+        }
+    }
+
+    // Breadth-first flight counts from start, or to start over the incoming flights
+    static int[] fewestFlights(FlightGraph graph, int start, boolean towards, int[] queue) {
+        int[] flights = new int[graph.airportCount()];
+        Arrays.fill(flights, FlightGraph.UNREACHABLE);
+        flights[start] = 0;
+        queue[0] = start;
+        for (int head = 0, tail = 1; head < tail; head++) {
+            int airport = queue[head];
+            int end = towards ? graph.endIncoming(airport) : graph.endFlight(airport);
+            for (int i = towards ? graph.firstIncoming(airport) : graph.firstFlight(airport); i < end; i++) {
+                int neighbour = towards ? graph.source(i) : graph.target(i);
+                if (flights[neighbour] == FlightGraph.UNREACHABLE) {
+                    flights[neighbour] = flights[airport] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return flights;
+    }
+
+    // Lower bound on the flights of any route from origin to destination, FlightGraph.UNREACHABLE when
+    // there is none. 0 only when origin equals destination.
+    public int fewestFlightsLowerBound(int origin, int destination) {
+        if (origin == destination) {
+            return 0;
+        }
+        int from = component[origin];
+        int to = component[destination];
+        if (from < to || (closure != null && (closure[from * words + (to >>> 6)] & (1L << to)) == 0)) {
+            return FlightGraph.UNREACHABLE;
+        }
+        int bound = 1;
+        for (int l = 0; l < fromLandmark.length; l++) {
+            int[] there = fromLandmark[l];
+            if (there[origin] != FlightGraph.UNREACHABLE) {
+                if (there[destination] == FlightGraph.UNREACHABLE) {
+                    // The landmark reaches the origin, so it would reach the destination through it
+                    return FlightGraph.UNREACHABLE;
+                }
+                bound = Math.max(bound, there[destination] - there[origin]);
+            }
+            int[] back = toLandmark[l];
+            if (back[destination] != FlightGraph.UNREACHABLE) {
+                if (back[origin] == FlightGraph.UNREACHABLE) {
+                    return FlightGraph.UNREACHABLE;
+                }
+                bound = Math.max(bound, back[origin] - back[destination]);
+            }
+        }
+        return bound;
+    }
+
+    // False only when no route from origin to destination can exist within maxFlights (RouteQuery.UNLIMITED for any)
+    public boolean mayConnect(int origin, int destination, int maxFlights) {
+        int bound = fewestFlightsLowerBound(origin, destination);
+        return bound != FlightGraph.UNREACHABLE && (maxFlights == RouteQuery.UNLIMITED || bound <= maxFlights);
+    }
+
+    public int getComponents() {
+        return components;
+    }
+
+    public boolean hasClosure() {
+        return closure != null;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 4L * component.length + (closure != null ? 8L * closure.length : 0);
+        for (int l = 0; l < fromLandmark.length; l++) {
+            bytes += 4L * (fromLandmark[l].length + toLandmark[l].length);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.pros.components;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Builds each published FlightGraph's ReachabilityIndex on a background thread
+@Slf4j
+@Component
+public class ReachabilityIndexBuilder {
+
+    private final boolean enabled;
+    private final FlightMetrics flightMetrics;
+    private final ExecutorService builder;
+
+    private final AtomicReference<FlightGraph> pending = new AtomicReference<>();
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    public ReachabilityIndexBuilder(@Value("${flights.search.reachability-index.enabled:true}") boolean enabled,
+                                    FlightMetrics flightMetrics) {
+        this.enabled = enabled;
+        this.flightMetrics = flightMetrics;
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reachability-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    @EventListener
+    public void onGraphUpdated(FlightGraphUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        pending.set(event.getGraph());
+        if (building.compareAndSet(false, true)) {
+            builder.execute(this::buildPending);
+        }
+    }
+
+    private void buildPending() {
+        do {
+            FlightGraph graph;
+            while ((graph = pending.getAndSet(null)) != null) {
+                if (graph.reachability() != null) {
+                    continue;
+                }
+                try {
+                    Timer.Sample sample = flightMetrics.start();
+                    graph.attachReachability(ReachabilityIndex.build(graph));
+                    flightMetrics.recordGraphBuild(sample, "reachability");
+                } catch (RuntimeException e) {
+                    log.warn("Could not build the reachability index for graph version {}", graph.getVersion(), e);
+                }
+            }
+            building.set(false);
+        } while (pending.get() != null && building.compareAndSet(false, true));
+    }
+}
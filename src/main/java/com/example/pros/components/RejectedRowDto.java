@@ -0,0 +1,13 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejectedRowDto {
+    public long line; // 1-based line number in the uploaded file
+    public String reason;
+}
@@ -0,0 +1,34 @@
+package com.example.pros.components;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+// Bounded pool writing streamed responses; beyond it they are rejected with 429
+@Component
+public class ResponseStreamExecutor {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public ResponseStreamExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                  @Value("${flights.stream.max-concurrent:16}") int maxConcurrent,
+                                  @Value("${flights.stream.queue-size:32}") int queueSize) {
+        executor.setThreadNamePrefix("flights-stream-");
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueSize);
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public AsyncTaskExecutor getTaskExecutor() {
+        return executor;
+    }
+}
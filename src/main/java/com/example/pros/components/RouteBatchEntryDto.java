@@ -0,0 +1,17 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteBatchEntryDto {
+    public int index; // Position of the query in the batch request
+    public RouteRequestDto request;
+    public List<Route> routes;
+    public String truncatedBy; // Set when the search budget ran out before all routes were found
+}
@@ -0,0 +1,52 @@
+package com.example.pros.components;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+// Runs the queries of a batch concurrently, on virtual threads when enabled
+@Component
+public class RouteBatchExecutor {
+
+    private final ExecutorService executor;
+
+    public RouteBatchExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                              @Value("${flights.search.batch.parallelism:0}") int parallelism) {
+        this.executor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Results in the order of the tasks; the first task to fail fails the whole call
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Supplier<T> task : tasks) {
+            futures.add(CompletableFuture.supplyAsync(task, executor));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+}
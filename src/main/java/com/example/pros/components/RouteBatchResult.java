@@ -0,0 +1,13 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class RouteBatchResult {
+    private List<RouteBatchEntryDto> entries; // In request order
+    private long graphVersion; // Every query in the batch ran against this snapshot
+}
@@ -0,0 +1,89 @@
+package com.example.pros.components;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Route results per request and graph version; truncated results are not cached
+@Component
+public class RouteCache {
+
+    private final AsyncCache<RouteCacheKey, RouteSearchResult> cache;
+
+    public RouteCache(@Value("${flights.search.cache.enabled:true}") boolean enabled,
+                      @Value("${flights.search.cache.max-weight:1000000}") long maxWeight,
+                      @Value("${flights.search.cache.ttl:0s}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        if (!enabled) {
+            cache = null;
+            return;
+        }
+        Caffeine<RouteCacheKey, RouteSearchResult> builder = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((RouteCacheKey key, RouteSearchResult result) -> weigh(result))
+                .recordStats();
+        if (!ttl.isZero()) {
+            builder.expireAfterWrite(ttl);
+        }
+        cache = builder.buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "routes");
+    }
+
+    // Concurrent misses on one key wait for the first one's search, which runs outside the cache's locks
+    public RouteSearchResult get(RouteCacheKey key, Supplier<RouteSearchResult> search) {
+        if (cache == null) {
+            return search.get();
+        }
+        CompletableFuture<RouteSearchResult> computing = new CompletableFuture<>();
+        CompletableFuture<RouteSearchResult> cached = cache.get(key, (k, executor) -> computing);
+        if (cached != computing) {
+            // A search that was truncated or failed leaves nothing to share, so search again
+            RouteSearchResult result = cached.exceptionally(e -> null).join();
+            return result != null ? result : search.get();
+        }
+        try {
+            RouteSearchResult result = search.get();
+            // Completing with null drops the entry; hits did no search work
+            computing.complete(result.getTruncatedBy() != null ? null
+                    : new RouteSearchResult(List.copyOf(result.getRoutes()), result.getGraphVersion(), new SearchStats(), null));
+            return result;
+        } catch (RuntimeException | Error e) {
+            computing.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @EventListener
+    public void onGraphUpdated(FlightGraphUpdatedEvent event) {
+        if (cache != null) {
+            cache.synchronous().invalidateAll();
+        }
+    }
+
+    public RouteCacheStatsDto stats() {
+        if (cache == null) {
+            return new RouteCacheStatsDto(false, 0, 0, 0, 0, 0);
+        }
+        CacheStats stats = cache.synchronous().stats();
+        return new RouteCacheStatsDto(true, cache.synchronous().estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    private static int weigh(RouteSearchResult result) {
+        long cities = 1;
+        for (Route route : result.getRoutes()) {
+            cities += route.getCities().size();
+        }
+        return (int) Math.min(cities, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.pros.components;
+
+import lombok.Data;
+
+// Everything a cached route result depends on, including the snapshot it was computed from
+@Data
+public class RouteCacheKey {
+    private final String origin;
+    private final String destination;
+    private final Integer maxFlights;
+    private final Integer limit;
+    private final Integer maxPrice;
+    private final SearchMode mode;
+    private final Long maxStates;
+    private final Integer maxRoutes;
+    private final Long timeoutMs;
+    private final long graphVersion;
+
+    public RouteCacheKey(RouteRequestDto request, long graphVersion) {
+        this.origin = request.origin;
+        this.destination = request.destination;
+        this.maxFlights = request.maxFlights;
+        this.limit = request.limit;
+        this.maxPrice = request.maxPrice;
+        this.mode = request.mode;
+        this.maxStates = request.maxStates;
+        this.maxRoutes = request.maxRoutes;
+        this.timeoutMs = request.timeoutMs;
+        this.graphVersion = graphVersion;
+    }
+}
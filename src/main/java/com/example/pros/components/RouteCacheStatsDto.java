@@ -0,0 +1,17 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteCacheStatsDto {
+    public boolean enabled;
+    public long size;
+    public long hits;
+    public long misses;
+    public long evictions;
+    public double hitRate;
+}
@@ -0,0 +1,35 @@
+package com.example.pros.components;
+
+// A RouteRequestDto resolved against one FlightGraph snapshot: airports as ids, absent limits as sentinels
+public class RouteQuery {
+
+    public static final int UNLIMITED = -1;
+
+    final FlightGraph graph;
+    final int origin;
+    final int destination;
+    final int maxFlights; // UNLIMITED when not given
+    final int maxPrice; // Integer.MAX_VALUE when not given
+    final int limit; // Integer.MAX_VALUE when not given
+    final SearchBudget budget;
+    final SearchStats stats = new SearchStats();
+
+    public RouteQuery(FlightGraph graph, int origin, int destination, int maxFlights, int maxPrice, int limit) {
+        this(graph, origin, destination, maxFlights, maxPrice, limit, SearchBudget.unlimited());
+    }
+
+    public RouteQuery(FlightGraph graph, int origin, int destination, int maxFlights, int maxPrice, int limit,
+                      SearchBudget budget) {
+        this.graph = graph;
+        this.origin = origin;
+        this.destination = destination;
+        this.maxFlights = maxFlights;
+        this.maxPrice = maxPrice;
+        this.limit = limit;
+        this.budget = budget;
+    }
+
+    boolean canTakeMoreFlights(int flightsTaken) {
+        return maxFlights == UNLIMITED || flightsTaken < maxFlights;
+    }
+}
@@ -11,4 +11,21 @@ public class RouteRequestDto {
     public String origin;
     public String destination;
     public Integer maxFlights; // Optional; if null then no limit.
-}
\ No newline at end of file
+    public Integer limit; // Optional; return only the cheapest routes.
+    public Integer maxPrice; // Optional; skip routes costing more.
+    public SearchMode mode; // Optional; defaults to AUTO.
+    // Optional search budget; can only tighten the server's limits. A search that runs out of it
+    // returns the routes found so far, marked as truncated.
+    public Long maxStates; // Airports the search may expand
+    public Integer maxRoutes; // Routes the search may produce
+    public Long timeoutMs; // Wall-clock time the search may take
+
+    public RouteRequestDto(String origin, String destination, Integer maxFlights) {
+        this(origin, destination, maxFlights, null, null, null);
+    }
+
+    public RouteRequestDto(String origin, String destination, Integer maxFlights, Integer limit, Integer maxPrice,
+                           SearchMode mode) {
+        this(origin, destination, maxFlights, limit, maxPrice, mode, null, null, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class RouteSearchResult {
+    private List<Route> routes;
+    private long graphVersion; // Version of the FlightGraph snapshot the search ran against
+    private SearchStats stats; // Work done by the search that produced the routes
+    private String truncatedBy; // SearchBudget limit that cut the search short; null if the routes are complete
+}
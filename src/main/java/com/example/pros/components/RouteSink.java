@@ -0,0 +1,9 @@
+package com.example.pros.components;
+
+// Receives routes as a search produces them
+@FunctionalInterface
+public interface RouteSink {
+
+    // Returns false to cancel the rest of the search
+    boolean accept(Route route);
+}
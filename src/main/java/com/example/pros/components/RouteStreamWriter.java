@@ -0,0 +1,69 @@
+package com.example.pros.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Writes routes to a streaming response as newline-delimited JSON or Server-Sent Events
+public class RouteStreamWriter implements RouteSink {
+
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_DATA = "data: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    // NDJSON is flushed after the first route and then in batches; SSE events are flushed one by one
+    private static final int NDJSON_FLUSH_EVERY = 32;
+
+    private final OutputStream out;
+    private final ObjectMapper objectMapper;
+    private final boolean sse;
+
+    private int written;
+    private IOException failure;
+
+    public RouteStreamWriter(OutputStream out, ObjectMapper objectMapper, boolean sse) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+        this.sse = sse;
+    }
+
+    @Override
+    public boolean accept(Route route) {
+        try {
+            if (sse) {
+                out.write(SSE_DATA);
+            }
+            out.write(objectMapper.writeValueAsBytes(route));
+            out.write(sse ? SSE_EVENT_END : NEWLINE);
+            written++;
+            if (sse || written == 1 || written % NDJSON_FLUSH_EVERY == 0) {
+                out.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            failure = e;
+            return false;
+        }
+    }
+
+    // Ends the stream. SSE clients get a final "end" event carrying the number of routes sent, whether
+    // they are complete and, when stats are given, the work the search did. NDJSON has no place for
+    // that, so a search cut short by its budget ends with a {"truncatedBy": ...} line instead.
+    public void finish(SearchStats stats, String truncatedBy) throws IOException {
+        if (failure != null) {
+            return;
+        }
+        if (sse) {
+            String data = "{\"routes\":" + written + ",\"complete\":" + (truncatedBy == null)
+                    + (truncatedBy != null ? ",\"truncatedBy\":\"" + truncatedBy + "\"" : "")
+                    + (stats != null ? ",\"nodesExpanded\":" + stats.getNodesExpanded()
+                    + ",\"edgesRelaxed\":" + stats.getEdgesRelaxed() : "") + "}";
+            out.write(("event: end\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        } else if (truncatedBy != null) {
+            out.write(("{\"truncatedBy\":\"" + truncatedBy + "\"}\n").getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.pros.components;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Route result set encoded as a prefix tree of cities
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteTrieDto {
+
+    public static final String MEDIA_TYPE_JSON = "application/vnd.flights.route-trie+json";
+    public static final String MEDIA_TYPE_CBOR = "application/vnd.flights.route-trie+cbor";
+    public static final String MEDIA_TYPE_SMILE = "application/vnd.flights.route-trie+smile";
+
+    public List<String> cities; // Distinct city codes
+    public int[] nodeCities; // Index into cities per node
+    public int[] nodeParents; // Index of each node's parent, -1 for a route's first city
+    public int[] routeNodes; // Last node of each route
+    public int[] routePrices; // Total price of each route
+
+    public static RouteTrieDto of(List<Route> routes) {
+        List<String> cities = new ArrayList<>();
+        Map<String, Integer> cityIds = new HashMap<>();
+        // (parent node + 1) << 32 | city -> node
+        Map<Long, Integer> children = new HashMap<>();
+        int[] nodeCities = new int[16];
+        int[] nodeParents = new int[16];
+        int nodes = 0;
+        int[] routeNodes = new int[routes.size()];
+        int[] routePrices = new int[routes.size()];
+        for (int r = 0; r < routes.size(); r++) {
+            Route route = routes.get(r);
+            int node = -1;
+            for (String city : route.getCities()) {
+                int cityId = cityIds.computeIfAbsent(city, code -> {
+                    cities.add(code);
+                    return cities.size() - 1;
+                });
+                long key = ((long) (node + 1) << 32) | cityId;
+                Integer child = children.get(key);
+                if (child == null) {
+                    if (nodes == nodeCities.length) {
+                        nodeCities = Arrays.copyOf(nodeCities, nodes * 2);
+                        nodeParents = Arrays.copyOf(nodeParents, nodes * 2);
+                    }
+                    nodeCities[nodes] = cityId;
+                    nodeParents[nodes] = node;
+                    child = nodes++;
+                    children.put(key, child);
+                }
+                node = child;
+            }
+            routeNodes[r] = node;
+            routePrices[r] = route.getTotalPrice();
+        }
+        return new RouteTrieDto(cities, Arrays.copyOf(nodeCities, nodes), Arrays.copyOf(nodeParents, nodes),
+                routeNodes, routePrices);
+    }
+
+    // The routes this trie encodes, in their original order
+    public List<Route> toRoutes() {
+        List<Route> routes = new ArrayList<>(routeNodes.length);
+        for (int r = 0; r < routeNodes.length; r++) {
+            int length = 0;
+            for (int node = routeNodes[r]; node >= 0; node = nodeParents[node]) {
+                length++;
+            }
+            String[] path = new String[length];
+            for (int node = routeNodes[r]; node >= 0; node = nodeParents[node]) {
+                path[--length] = cities.get(nodeCities[node]);
+            }
+            routes.add(new Route(Arrays.asList(path), routePrices[r]));
+        }
+        return routes;
+    }
+}
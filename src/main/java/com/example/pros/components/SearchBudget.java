@@ -0,0 +1,86 @@
+package com.example.pros.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limits on the states, routes and time of one route search, shared by all of its threads
+public class SearchBudget {
+
+    // Expansions a search does between two charge() calls
+    static final int CHARGE_INTERVAL = 1024;
+
+    public static final String MAX_STATES = "max-states";
+    public static final String MAX_ROUTES = "max-routes";
+    public static final String DEADLINE = "deadline";
+
+    private final long maxStates;
+    private final long maxRoutes;
+    private final long deadline; // System.nanoTime() value; only meaningful if hasDeadline
+    private final boolean hasDeadline;
+
+    private final AtomicLong states = new AtomicLong();
+    private final AtomicLong routes = new AtomicLong();
+    private volatile String truncatedBy;
+
+    public SearchBudget(long maxStates, long maxRoutes, long timeoutMillis) {
+        this.maxStates = maxStates;
+        this.maxRoutes = maxRoutes;
+        this.hasDeadline = timeoutMillis > 0;
+        this.deadline = System.nanoTime() + Math.max(0, timeoutMillis) * 1_000_000;
+    }
+
+    public static SearchBudget unlimited() {
+        return new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE, 0);
+    }
+
+    // Adds expanded airports and checks the limits; false once the search has to stop
+    boolean charge(long expanded) {
+        if (truncatedBy != null) {
+            return false;
+        }
+        if (states.addAndGet(expanded) > maxStates) {
+            return stop(MAX_STATES);
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            return stop(DEADLINE);
+        }
+        return true;
+    }
+
+    // Adds the airports a search expanded after its last charge() once its loop is over. Nothing is
+    // left to stop, so a limit passed here does not mark the finished result as truncated.
+    void settle(long expanded) {
+        states.addAndGet(expanded);
+    }
+
+    // Counts one route about to be produced; false (and the route must be dropped) once over maxRoutes
+    boolean countRoute() {
+        if (truncatedBy != null) {
+            return false;
+        }
+        long produced = routes.incrementAndGet();
+        if (produced > maxRoutes) {
+            return stop(MAX_ROUTES);
+        }
+        // A search can produce many routes per expansion, so the deadline is checked here as well
+        if (produced % CHARGE_INTERVAL == 0 && hasDeadline && System.nanoTime() - deadline > 0) {
+            return stop(DEADLINE);
+        }
+        return true;
+    }
+
+    private boolean stop(String reason) {
+        if (truncatedBy == null) {
+            truncatedBy = reason;
+        }
+        return false;
+    }
+
+    public boolean isTruncated() {
+        return truncatedBy != null;
+    }
+
+    // The limit that stopped the search (MAX_STATES, MAX_ROUTES or DEADLINE), or null if it completed
+    public String getTruncatedBy() {
+        return truncatedBy;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.pros.components;
+
+public enum SearchMode {
+    AUTO,          // CHEAPEST for limit 1 without maxFlights, BEST_FIRST for other limits, BIDIRECTIONAL
+                   // for maxFlights >= 4, otherwise PARALLEL for large searches and EXHAUSTIVE for the rest
+    EXHAUSTIVE,    // Depth-first enumeration of every route, sorted by price afterwards
+    BEST_FIRST,    // Routes produced in price order, stopping after the limit
+    PARALLEL,      // EXHAUSTIVE split across a ForkJoinPool
+    BIDIRECTIONAL, // EXHAUSTIVE meeting in the middle; needs maxFlights
+    PARETO,        // Only the cheapest route for each number of flights that beats every shorter one
+    CHEAPEST       // Only the cheapest route, from the precomputed CheapestRouteIndex when it is current
+}
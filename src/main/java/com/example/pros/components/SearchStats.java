@@ -0,0 +1,23 @@
+package com.example.pros.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Work done by one route search, summed over every thread that worked on it
+public class SearchStats {
+
+    private final AtomicLong nodesExpanded = new AtomicLong(); // airports whose flights were scanned
+    private final AtomicLong edgesRelaxed = new AtomicLong(); // flights looked at while scanning
+
+    void add(long expanded, long relaxed) {
+        nodesExpanded.addAndGet(expanded);
+        edgesRelaxed.addAndGet(relaxed);
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded.get();
+    }
+
+    public long getEdgesRelaxed() {
+        return edgesRelaxed.get();
+    }
+}
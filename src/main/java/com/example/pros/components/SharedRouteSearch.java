@@ -0,0 +1,151 @@
+package com.example.pros.components;
+
+import java.util.*;
+
+// Answers several exhaustive queries sharing an origin or destination with a single walk
+public class SharedRouteSearch {
+
+    // One query of the group: the airport at the far end of the walk plus its own limits
+    public static class Member {
+        final int airport;
+        final int maxFlights;
+        final int maxPrice;
+        final List<Route> routes = new ArrayList<>();
+
+        public Member(RouteQuery query, boolean backward) {
+            this.airport = backward ? query.origin : query.destination;
+            this.maxFlights = query.maxFlights;
+            this.maxPrice = query.maxPrice;
+        }
+
+        public List<Route> getRoutes() {
+            return routes;
+        }
+
+        boolean accepts(int flights, int price) {
+            return (maxFlights == RouteQuery.UNLIMITED || flights <= maxFlights) && price <= maxPrice;
+        }
+    }
+
+    // Fills each member's routes, sorted by price. With backward set, root is the shared destination.
+    public static void search(FlightGraph graph, int root, boolean backward, List<Member> members, SearchBudget budget,
+                              SearchStats stats) {
+        int airports = graph.airportCount();
+        Map<Integer, List<Member>> membersByAirport = new HashMap<>();
+        int maxFlights = 0;
+        int maxPrice = 0;
+        int[] remaining = new int[airports];
+        Arrays.fill(remaining, FlightGraph.UNREACHABLE);
+        for (Member member : members) {
+            if (membersByAirport.computeIfAbsent(member.airport, k -> new ArrayList<>()).size() == 0) {
+                int[] cheapest = backward ? graph.cheapestPricesFrom(member.airport) : graph.cheapestPricesTo(member.airport);
+                for (int a = 0; a < airports; a++) {
+                    remaining[a] = Math.min(remaining[a], cheapest[a]);
+                }
+            }
+            membersByAirport.get(member.airport).add(member);
+            maxFlights = (maxFlights == RouteQuery.UNLIMITED || member.maxFlights == RouteQuery.UNLIMITED)
+                    ? RouteQuery.UNLIMITED : Math.max(maxFlights, member.maxFlights);
+            maxPrice = Math.max(maxPrice, member.maxPrice);
+        }
+        int[] fewest = null;
+        if (maxFlights != RouteQuery.UNLIMITED) {
+            fewest = new int[airports];
+            Arrays.fill(fewest, FlightGraph.UNREACHABLE);
+            for (int airport : membersByAirport.keySet()) {
+                int[] flights = backward ? graph.fewestFlightsFrom(airport) : graph.fewestFlightsTo(airport);
+                for (int a = 0; a < airports; a++) {
+                    fewest[a] = Math.min(fewest[a], flights[a]);
+                }
+            }
+        }
+        // With a single far end, stepping through it can't lead to another route
+        boolean stopAtMember = membersByAirport.size() == 1;
+
+        int maxDepth = maxFlights != RouteQuery.UNLIMITED ? Math.min(airports, maxFlights + 1) : airports;
+        int[] path = new int[maxDepth + 1];
+        int[] pathPrices = new int[maxDepth + 1];
+        int[] nextFlight = new int[maxDepth + 1];
+        long[] visited = new long[(airports + 63) >>> 6];
+
+        path[0] = root;
+        nextFlight[0] = first(graph, root, backward);
+        visited[root >>> 6] |= 1L << root;
+        int depth = 1;
+        long expanded = 1;
+        long relaxed = 0;
+        try {
+            while (depth > 0 && !budget.isTruncated()) {
+                int current = path[depth - 1];
+                int flight = nextFlight[depth - 1];
+                if (flight == end(graph, current, backward) || (maxFlights != RouteQuery.UNLIMITED && depth - 1 >= maxFlights)) {
+                    visited[current >>> 6] &= ~(1L << current);
+                    depth--;
+                    continue;
+                }
+                nextFlight[depth - 1] = flight + 1;
+                relaxed++;
+
+                int next = backward ? graph.source(flight) : graph.target(flight);
+                if ((visited[next >>> 6] & (1L << next)) != 0 || remaining[next] == FlightGraph.UNREACHABLE
+                        || (fewest != null && depth + fewest[next] > maxFlights)) {
+                    continue;
+                }
+                int price = pathPrices[depth - 1] + (backward ? graph.reversePrice(flight) : graph.price(flight));
+                if ((long) price + remaining[next] > maxPrice) {
+                    continue;
+                }
+
+                path[depth] = next;
+                List<Member> arrived = membersByAirport.get(next);
+                if (arrived != null) {
+                    Route route = null;
+                    for (Member member : arrived) {
+                        if (member.accepts(depth, price)) {
+                            if (route == null) {
+                                if (!budget.countRoute()) {
+                                    break;
+                                }
+                                route = new Route(backward ? reversedCities(graph, path, depth + 1) : graph.toCities(path, depth + 1), price);
+                            }
+                            member.routes.add(route);
+                        }
+                    }
+                    if (stopAtMember) {
+                        continue;
+                    }
+                }
+                pathPrices[depth] = price;
+                nextFlight[depth] = first(graph, next, backward);
+                visited[next >>> 6] |= 1L << next;
+                depth++;
+                if (++expanded % SearchBudget.CHARGE_INTERVAL == 0 && !budget.charge(SearchBudget.CHARGE_INTERVAL)) {
+                    break;
+                }
+            }
+        } finally {
+            stats.add(expanded, relaxed);
+            budget.settle(expanded % SearchBudget.CHARGE_INTERVAL);
+        }
+
+        for (Member member : members) {
+            member.routes.sort(Comparator.comparingInt(r -> r.totalPrice));
+        }
+    }
+
+    private static int first(FlightGraph graph, int airport, boolean backward) {
+        return backward ? graph.firstIncoming(airport) : graph.firstFlight(airport);
+    }
+
+    private static int end(FlightGraph graph, int airport, boolean backward) {
+        return backward ? graph.endIncoming(airport) : graph.endFlight(airport);
+    }
+
+    private static List<String> reversedCities(FlightGraph graph, int[] path, int length) {
+        int[] reversed = new int[length];
+        for (int i = 0; i < length; i++) {
+            reversed[i] = path[length - 1 - i];
+        }
+        return graph.toCities(reversed, length);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.pros.components;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+@Configuration
+public class TransactionConfig {
+
+    // Flushes before the commit callbacks, so FlightChangeListener still sees writes made by dirty checking
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                    ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory) {
+            @Override
+            protected void prepareForCommit(DefaultTransactionStatus status) {
+                if (status.isNewTransaction() && !status.isReadOnly()) {
+                    status.flush();
+                }
+            }
+        };
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -1,11 +1,33 @@
 package com.example.pros.components;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder jacksonBuilder;
+
+    @Autowired
+    private ResponseStreamExecutor responseStreamExecutor;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -14,5 +36,30 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*");
     }
 
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(responseStreamExecutor.getTaskExecutor());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionControlInterceptor)
+                .addPathPatterns("/api/routes", "/api/routes/batch", "/api/bulkcreate", "/api/import");
+    }
 
+    // Binary alternatives to JSON for clients that ask for them (Accept: application/cbor or
+    // application/x-jackson-smile, or a vendor type ending in +cbor / +smile). Added after the JSON
+    // converter, so JSON stays the default.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2CborHttpMessageConverter cbor =
+                new MappingJackson2CborHttpMessageConverter(jacksonBuilder.factory(new CBORFactory()).build());
+        cbor.setSupportedMediaTypes(List.of(MediaType.APPLICATION_CBOR, new MediaType("application", "*+cbor")));
+        converters.add(cbor);
+        MappingJackson2SmileHttpMessageConverter smile =
+                new MappingJackson2SmileHttpMessageConverter(jacksonBuilder.factory(new SmileFactory()).build());
+        smile.setSupportedMediaTypes(List.of(new MediaType("application", "x-jackson-smile"),
+                new MediaType("application", "*+smile")));
+        converters.add(smile);
+    }
 }
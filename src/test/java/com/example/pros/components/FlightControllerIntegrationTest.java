@@ -1,21 +1,43 @@
 package com.example.pros.components;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// Parallel threshold only testParallelSearchMatchesExhaustiveSearch's network reaches
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "flights.search.parallel.threshold=10")
 public class FlightControllerIntegrationTest {
 
     @Autowired
@@ -24,6 +46,25 @@ public class FlightControllerIntegrationTest {
     @Autowired
     private FlightRepository flightRepository;
 
+    @Autowired
+    private FlightGraphHolder flightGraphHolder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private FlightChangeLog flightChangeLog;
+
+    // Real FlightService; the import test skips its duplicate check to reach the schema's
+    @MockitoSpyBean
+    private FlightService flightService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @BeforeEach
     public void setUp() {
         // Clean database before each test
@@ -40,6 +81,7 @@ public class FlightControllerIntegrationTest {
                 new Flight(null, "BOS", "SEA", 400)
         );
         flightRepository.saveAll(testFlights);
+        flightGraphHolder.refresh();
     }
 
     @AfterEach
@@ -127,6 +169,7 @@ public class FlightControllerIntegrationTest {
         // Add an expensive direct flight
         Flight expensiveFlight = new Flight(null, "NYC", "SEA", 1000);
         flightRepository.save(expensiveFlight);
+        flightGraphHolder.refresh();
 
         RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
         ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
@@ -159,6 +202,7 @@ public class FlightControllerIntegrationTest {
         // Add a cycle
         Flight cycleFlight = new Flight(null, "SEA", "NYC", 250);
         flightRepository.save(cycleFlight);
+        flightGraphHolder.refresh();
 
         RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
         ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
@@ -175,6 +219,162 @@ public class FlightControllerIntegrationTest {
         }
     }
 
+    @Test
+    public void testUnboundedSearchTerminatesOnCycles() {
+        // Cycles that do not pass through the destination
+        flightRepository.saveAll(Arrays.asList(
+                new Flight(null, "LAX", "NYC", 280),
+                new Flight(null, "SFO", "LAX", 90),
+                new Flight(null, "LAX", "CHI", 160)
+        ));
+        flightGraphHolder.refresh();
+
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
+        ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Route[] routes = response.getBody();
+        assertNotNull(routes);
+        assertEquals(3, routes.length);
+        for (Route route : routes) {
+            List<String> cities = route.getCities();
+            assertEquals(cities.size(), cities.stream().distinct().count(),
+                    "Route should not visit the same city twice");
+        }
+    }
+
+    @Test
+    public void testStreamRoutesAsNdjson() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        HttpEntity<RouteRequestDto> request = new HttpEntity<>(new RouteRequestDto("NYC", "SEA", null, 2, null, null), headers);
+        ResponseEntity<String> response = restTemplate.exchange("/api/routes", HttpMethod.POST, request, String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        List<String> lines = response.getBody().lines().filter(line -> !line.isBlank()).collect(Collectors.toList());
+        assertEquals(2, lines.size(), "One NDJSON line per route");
+        assertTrue(lines.get(0).contains("\"totalPrice\":520"));
+        assertTrue(lines.get(1).contains("\"totalPrice\":550"));
+    }
+
+    @Test
+    public void testCompactRouteEncodingsMatchJson() throws Exception {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
+        List<Route> expected = Arrays.asList(restTemplate.postForEntity("/api/routes", request, Route[].class).getBody());
+
+        HttpHeaders trieHeaders = new HttpHeaders();
+        trieHeaders.setAccept(List.of(MediaType.parseMediaType(RouteTrieDto.MEDIA_TYPE_JSON)));
+        ResponseEntity<RouteTrieDto> trie = restTemplate.exchange("/api/routes", HttpMethod.POST,
+                new HttpEntity<>(request, trieHeaders), RouteTrieDto.class);
+        assertEquals(HttpStatus.OK, trie.getStatusCode());
+        assertEquals(expected, trie.getBody().toRoutes());
+        // Every route starts at NYC, so the origin is stored once
+        assertEquals(1, Arrays.stream(trie.getBody().getNodeParents()).filter(parent -> parent == -1).count());
+
+        HttpHeaders cborHeaders = new HttpHeaders();
+        cborHeaders.setAccept(List.of(MediaType.APPLICATION_CBOR));
+        ResponseEntity<byte[]> cbor = restTemplate.exchange("/api/routes", HttpMethod.POST,
+                new HttpEntity<>(request, cborHeaders), byte[].class);
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(cbor.getHeaders().getContentType()));
+        Route[] decoded = Jackson2ObjectMapperBuilder.cbor().build().readValue(cbor.getBody(), Route[].class);
+        assertEquals(expected, Arrays.asList(decoded));
+    }
+
+    @Test
+    public void testBidirectionalSearchMatchesExhaustiveSearch() {
+        flightRepository.saveAll(Arrays.asList(
+                new Flight(null, "LAX", "NYC", 280),
+                new Flight(null, "CHI", "SFO", 260),
+                new Flight(null, "BOS", "CHI", 90),
+                new Flight(null, "LAX", "SEA", 310)
+        ));
+        flightGraphHolder.refresh();
+
+        RouteRequestDto exhaustive = new RouteRequestDto("NYC", "SEA", 4, null, null, SearchMode.EXHAUSTIVE);
+        RouteRequestDto bidirectional = new RouteRequestDto("NYC", "SEA", 4, null, null, SearchMode.BIDIRECTIONAL);
+        Route[] expected = restTemplate.postForEntity("/api/routes", exhaustive, Route[].class).getBody();
+        Route[] actual = restTemplate.postForEntity("/api/routes", bidirectional, Route[].class).getBody();
+
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertTrue(expected.length > 3);
+        assertEquals(Arrays.stream(expected).map(Route::toString).sorted().collect(Collectors.toList()),
+                Arrays.stream(actual).map(Route::toString).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBatchRoutesMatchSingleQueries() {
+        List<RouteRequestDto> queries = Arrays.asList(
+                new RouteRequestDto("NYC", "SEA", null),
+                new RouteRequestDto("NYC", "SFO", 3),
+                new RouteRequestDto("CHI", "SEA", null),
+                new RouteRequestDto("NYC", "SEA", null, 1, null, null)
+        );
+        long searches = meterRegistry.get("flights.route.search.edges.relaxed").summary().count();
+        ResponseEntity<RouteBatchEntryDto[]> response =
+                restTemplate.postForEntity("/api/routes/batch", queries, RouteBatchEntryDto[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        // One shared walk from NYC, CHI -> SEA on its own, and the limited query best-first
+        assertEquals(searches + 3, meterRegistry.get("flights.route.search.edges.relaxed").summary().count());
+        RouteBatchEntryDto[] entries = response.getBody();
+        assertNotNull(entries);
+        assertEquals(queries.size(), entries.length);
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(i, entries[i].getIndex());
+            Route[] single = restTemplate.postForEntity("/api/routes", queries.get(i), Route[].class).getBody();
+            assertNotNull(single);
+            assertEquals(Arrays.stream(single).map(Route::toString).sorted().collect(Collectors.toList()),
+                    entries[i].getRoutes().stream().map(Route::toString).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testBatchQueryKeepsItsOwnSearchBudget() {
+        RouteRequestDto limited = new RouteRequestDto("NYC", "SEA", null);
+        limited.maxRoutes = 1;
+        List<RouteRequestDto> queries = Arrays.asList(new RouteRequestDto("NYC", "SEA", null), limited);
+        RouteBatchEntryDto[] entries =
+                restTemplate.postForEntity("/api/routes/batch", queries, RouteBatchEntryDto[].class).getBody();
+
+        assertNotNull(entries);
+        assertTrue(entries[0].getRoutes().size() > 1);
+        assertNull(entries[0].getTruncatedBy());
+        assertEquals(1, entries[1].getRoutes().size());
+        assertEquals(SearchBudget.MAX_ROUTES, entries[1].getTruncatedBy());
+    }
+
+    @Test
+    public void testRepeatedRouteQueryIsServedFromCache() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", 3);
+        restTemplate.postForEntity("/api/routes", request, Route[].class);
+        RouteCacheStatsDto before = restTemplate.getForEntity("/api/routes/cache", RouteCacheStatsDto.class).getBody();
+
+        ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        RouteCacheStatsDto after = restTemplate.getForEntity("/api/routes/cache", RouteCacheStatsDto.class).getBody();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().length);
+        assertNotNull(before);
+        assertNotNull(after);
+        assertEquals(before.getHits() + 1, after.getHits());
+    }
+
+    @Test
+    public void testCacheHitReportsNoSearchWork() {
+        RouteCache cache = new RouteCache(true, 1000, Duration.ZERO, meterRegistry);
+        RouteCacheKey key = new RouteCacheKey(new RouteRequestDto("NYC", "SEA", 3), 1);
+        SearchStats stats = new SearchStats();
+        stats.add(5, 7);
+        RouteSearchResult miss = cache.get(key, () -> new RouteSearchResult(List.of(), 1, stats, null));
+        RouteSearchResult hit = cache.get(key, () -> fail("expected a cache hit"));
+
+        assertEquals(5, miss.getStats().getNodesExpanded());
+        assertEquals(0, hit.getStats().getNodesExpanded());
+        assertEquals(0, hit.getStats().getEdgesRelaxed());
+    }
+
     // 3. Flight management tests
     @Test
     public void testCreateFlight() {
@@ -265,6 +465,141 @@ public class FlightControllerIntegrationTest {
         assertTrue(foundAtlMia && foundMiaCun, "Bulk created flights should be found in database");
     }
 
+    @Test
+    public void testBulkCreateIsAllOrNothing() {
+        List<Flight> newFlights = Arrays.asList(
+                new Flight(null, "ATL", "MIA", 250),
+                new Flight(null, "MIA", "CUN", 180),
+                new Flight(null, "NYC", "LAX", 310) // already exists
+        );
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/bulkcreate", newFlights, String.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertTrue(response.getBody().contains("already exists"));
+        assertTrue(flightRepository.findBySourceAndDestination("ATL", "MIA").isEmpty(),
+                "No flight of a rejected batch should be saved");
+    }
+
+    @Test
+    public void testImportCsvReportsRejectedLines() {
+        String csv = "source,destination,price\n"
+                + "ATL,MIA,250\n"
+                + "MIA,MIA,100\n"
+                + "MIA,CUN,180\n"
+                + "NYC,LAX,300\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        ResponseEntity<FlightImportSummaryDto> response = restTemplate.postForEntity("/api/import",
+                new HttpEntity<>(csv, headers), FlightImportSummaryDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        FlightImportSummaryDto summary = response.getBody();
+        assertNotNull(summary);
+        assertEquals(2, summary.getInserted());
+        assertEquals(2, summary.getRejected());
+        assertEquals(3, summary.getRejections().get(0).getLine());
+        assertEquals(5, summary.getRejections().get(1).getLine());
+        assertTrue(flightRepository.findBySourceAndDestination("MIA", "CUN").isPresent());
+    }
+
+    @Test
+    public void testImportReportsChunkRejectedBySchema() {
+        // As if another writer inserted NYC-LAX between the duplicate check and the insert
+        doReturn(new HashSet<String>()).when(flightService).existingRoutes(any());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        ResponseEntity<FlightImportSummaryDto> response = restTemplate.postForEntity("/api/import",
+                new HttpEntity<>("source,destination,price\nATL,MIA,250\nNYC,LAX,999\n", headers),
+                FlightImportSummaryDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        FlightImportSummaryDto summary = response.getBody();
+        assertNotNull(summary);
+        assertEquals(0, summary.getInserted());
+        assertEquals(2, summary.getRejected());
+        assertTrue(summary.getRejections().get(0).getReason().startsWith("Chunk could not be saved"));
+        assertTrue(flightRepository.findBySourceAndDestination("ATL", "MIA").isEmpty());
+        assertEquals(300, flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow().getPrice());
+    }
+
+    @Test
+    public void testImportCsvRecognisesHeaderOnlyByItsColumnNames() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        FlightImportSummaryDto withHeader = restTemplate.postForEntity("/api/import",
+                new HttpEntity<>(" Source , DESTINATION ,\"Price\",notes\nATL,MIA,250,weekly\n", headers),
+                FlightImportSummaryDto.class).getBody();
+        FlightImportSummaryDto withoutHeader = restTemplate.postForEntity("/api/import",
+                new HttpEntity<>("MIA,CUN,180\n", headers), FlightImportSummaryDto.class).getBody();
+
+        assertNotNull(withHeader);
+        assertNotNull(withoutHeader);
+        assertEquals(1, withHeader.getInserted());
+        assertEquals(0, withHeader.getRejected());
+        assertEquals(1, withoutHeader.getInserted());
+        assertTrue(flightRepository.findBySourceAndDestination("MIA", "CUN").isPresent());
+    }
+
+    @Test
+    public void testSchemaRejectsDuplicateRoute() {
+        // Bypasses FlightService's duplicate check, as a concurrent create would
+        assertThrows(DataIntegrityViolationException.class,
+                () -> flightRepository.save(new Flight(null, "NYC", "LAX", 999)));
+        assertEquals(300, flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow().getPrice());
+    }
+
+    @Test
+    public void testBulkInsertTranslatesDuplicateRoute() {
+        // Skips the duplicate check before the insert, as a concurrent writer would
+        assertThrows(DataIntegrityViolationException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                flightService.insertFlights(new ArrayList<>(List.of(new Flight(null, "NYC", "LAX", 999))))));
+        assertEquals(300, flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow().getPrice());
+    }
+
+    @Test
+    public void testKeysetPaginationVisitsEveryFlightOnce() {
+        List<Long> ids = new ArrayList<>();
+        String url = "/api/flights?limit=3";
+        while (url != null) {
+            ResponseEntity<Flight[]> page = restTemplate.getForEntity(url, Flight[].class);
+            assertEquals(HttpStatus.OK, page.getStatusCode());
+            assertNotNull(page.getBody());
+            assertTrue(page.getBody().length <= 3);
+            for (Flight flight : page.getBody()) {
+                ids.add(flight.getId());
+            }
+            String cursor = page.getHeaders().getFirst("X-Next-Cursor");
+            url = cursor != null ? "/api/flights?limit=3&after=" + cursor : null;
+        }
+
+        assertEquals(7, ids.size());
+        assertEquals(7, ids.stream().distinct().count());
+
+        Flight[] fromNyc = restTemplate.getForEntity("/api/flights?source=NYC", Flight[].class).getBody();
+        assertNotNull(fromNyc);
+        assertEquals(3, fromNyc.length);
+    }
+
+    @Test
+    public void testExportStreamsEveryFlight() {
+        ResponseEntity<Flight[]> export = restTemplate.getForEntity("/api/flights?export", Flight[].class);
+        assertEquals(HttpStatus.OK, export.getStatusCode());
+        assertNotNull(export.getBody());
+        assertEquals(7, export.getBody().length);
+        assertEquals(7, Arrays.stream(export.getBody()).map(Flight::getId).distinct().count());
+
+        Flight[] toSea = restTemplate.getForEntity("/api/flights?export&destination=SEA", Flight[].class).getBody();
+        assertNotNull(toSea);
+        assertEquals(2, toSea.length);
+
+        // The plain listing is a bounded page: everything fits, so there is no cursor to a next one
+        ResponseEntity<Flight[]> page = restTemplate.getForEntity("/api/flights", Flight[].class);
+        assertEquals(7, page.getBody().length);
+        assertNull(page.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
     @Test
     public void testDeleteAllFlights() {
         // First verify we have flights
@@ -288,6 +623,7 @@ public class FlightControllerIntegrationTest {
                 new Flight(null, "ATL", "SEA", 330)
         );
         flightRepository.saveAll(alternativeRoute);
+        flightGraphHolder.refresh();
 
         RouteRequestDto request = new RouteRequestDto("NYC", "SEA", 2);
         ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
@@ -323,6 +659,7 @@ public class FlightControllerIntegrationTest {
                 new Flight(null, "SE1", "SE2", 100)
         );
         flightRepository.saveAll(isolatedCities);
+        flightGraphHolder.refresh();
 
         RouteRequestDto request = new RouteRequestDto("IS1", "SE2", null);
         ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
@@ -346,6 +683,296 @@ public class FlightControllerIntegrationTest {
         assertEquals(0, routes[0].getTotalPrice());
     }
 
+    @Test
+    public void testLimitReturnsCheapestRoutesInOrder() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null, 2, null, null);
+        ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Route[] routes = response.getBody();
+        assertNotNull(routes);
+        assertEquals(2, routes.length);
+        assertEquals(Arrays.asList("NYC", "LAX", "SFO", "SEA"), routes[0].getCities());
+        assertEquals(520, routes[0].getTotalPrice());
+        assertEquals(Arrays.asList("NYC", "BOS", "SEA"), routes[1].getCities());
+        assertEquals(550, routes[1].getTotalPrice());
+    }
+
+    @Test
+    public void testParallelSearchMatchesExhaustiveSearch() {
+        // Five fully connected airports; power-of-two prices give every route a distinct total, so the
+        // price order is unique
+        flightRepository.deleteAll();
+        List<Flight> network = new ArrayList<>();
+        String[] cities = {"A", "B", "C", "D", "E"};
+        for (String source : cities) {
+            for (String destination : cities) {
+                if (!source.equals(destination)) {
+                    network.add(new Flight(null, source, destination, 1 << network.size()));
+                }
+            }
+        }
+        flightRepository.saveAll(network);
+        flightGraphHolder.refresh();
+
+        List<RouteRequestDto> requests = List.of(
+                new RouteRequestDto("A", "E", null, null, null, null),
+                new RouteRequestDto("A", "E", null, 3, null, null),
+                new RouteRequestDto("A", "E", null, null, 1 << 14, null),
+                new RouteRequestDto("A", "E", null, 5, 1 << 14, null),
+                new RouteRequestDto("A", "E", 2, null, null, null));
+        for (RouteRequestDto request : requests) {
+            request.mode = SearchMode.EXHAUSTIVE;
+            List<Route> exhaustive = Arrays.asList(restTemplate.postForEntity("/api/routes", request, Route[].class).getBody());
+            request.mode = SearchMode.PARALLEL;
+            List<Route> parallel = Arrays.asList(restTemplate.postForEntity("/api/routes", request, Route[].class).getBody());
+            assertFalse(exhaustive.isEmpty());
+            assertEquals(exhaustive, parallel);
+        }
+        assertEquals(16, restTemplate.postForEntity("/api/routes", requests.get(0), Route[].class).getBody().length);
+
+        // 16 second-hop flights from A, above the threshold: AUTO picks the parallel search
+        double parallelSearches = meterRegistry.get("flights.route.search").tag("mode", "parallel").timer().count();
+        Route[] auto = restTemplate.postForEntity("/api/routes", new RouteRequestDto("A", "D", null), Route[].class).getBody();
+        assertEquals(16, auto.length);
+        assertEquals(parallelSearches + 1, meterRegistry.get("flights.route.search").tag("mode", "parallel").timer().count());
+    }
+
+    @Test
+    public void testParetoModeReturnsCheapestRouteForEachNumberOfStops() {
+        // NYC-CHI-LAX-SFO-SEA (570) takes more flights than NYC-LAX-SFO-SEA (520) and costs more, so it is left out
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null, null, null, SearchMode.PARETO);
+        ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Route[] routes = response.getBody();
+        assertNotNull(routes);
+        assertEquals(2, routes.length);
+        assertEquals(Arrays.asList("NYC", "LAX", "SFO", "SEA"), routes[0].getCities());
+        assertEquals(520, routes[0].getTotalPrice());
+        assertEquals(Arrays.asList("NYC", "BOS", "SEA"), routes[1].getCities());
+        assertEquals(550, routes[1].getTotalPrice());
+    }
+
+    @Test
+    public void testCheapestModeUsesPrecomputedIndex() throws InterruptedException {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null, null, null, SearchMode.CHEAPEST);
+        // Answered by the fallback search until the background build catches up with the graph
+        ResponseEntity<Route[]> fallback = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(1, fallback.getBody().length);
+        assertEquals(520, fallback.getBody()[0].getTotalPrice());
+
+        long version = flightGraphHolder.get().getVersion();
+        long deadline = System.currentTimeMillis() + 10000;
+        CheapestRouteIndexStatsDto stats = restTemplate.getForObject("/api/routes/index", CheapestRouteIndexStatsDto.class);
+        while ((stats.getGraphVersion() == null || stats.getGraphVersion() < version) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            stats = restTemplate.getForObject("/api/routes/index", CheapestRouteIndexStatsDto.class);
+        }
+        assertEquals(version, stats.getGraphVersion());
+        assertEquals(7, stats.getFlights());
+        assertTrue(stats.getMemoryBytes() > 0);
+
+        ResponseEntity<Route[]> indexed = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(1, indexed.getBody().length);
+        assertEquals(Arrays.asList("NYC", "LAX", "SFO", "SEA"), indexed.getBody()[0].getCities());
+        assertEquals(520, indexed.getBody()[0].getTotalPrice());
+        assertEquals(0, restTemplate.postForEntity("/api/routes",
+                new RouteRequestDto("SEA", "NYC", null, null, null, SearchMode.CHEAPEST), Route[].class).getBody().length);
+    }
+
+    @Test
+    public void testReachabilityIndexRulesOutImpossiblePairs() throws InterruptedException {
+        FlightGraph graph = flightGraphHolder.get();
+        // Built in the background; queries meanwhile run without it
+        long deadline = System.currentTimeMillis() + 10000;
+        while (graph.reachability() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        ReachabilityIndex reachability = graph.reachability();
+        assertNotNull(reachability);
+        int nyc = graph.airportId("NYC");
+        int sea = graph.airportId("SEA");
+        // No flight leaves SEA, and NYC -> SEA takes at least two flights (via BOS)
+        assertEquals(FlightGraph.UNREACHABLE, reachability.fewestFlightsLowerBound(sea, nyc));
+        int bound = reachability.fewestFlightsLowerBound(nyc, sea);
+        assertTrue(bound >= 1 && bound <= 2);
+        assertFalse(reachability.mayConnect(nyc, sea, 1));
+        assertTrue(reachability.mayConnect(nyc, sea, 2));
+        assertEquals(2, graph.fewestFlightsTo(sea)[nyc]);
+
+        assertEquals(0, restTemplate.postForEntity("/api/routes",
+                new RouteRequestDto("SEA", "NYC", null), Route[].class).getBody().length);
+        assertEquals(0, restTemplate.postForEntity("/api/routes",
+                new RouteRequestDto("NYC", "SEA", 1), Route[].class).getBody().length);
+        Route[] routes = restTemplate.postForEntity("/api/routes",
+                new RouteRequestDto("NYC", "SEA", 2), Route[].class).getBody();
+        assertEquals(1, routes.length);
+        assertEquals(Arrays.asList("NYC", "BOS", "SEA"), routes[0].getCities());
+    }
+
+    @Test
+    public void testMaxPriceFiltersExpensiveRoutes() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null, null, 540, SearchMode.EXHAUSTIVE);
+        ResponseEntity<Route[]> response = restTemplate.postForEntity("/api/routes", request, Route[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Route[] routes = response.getBody();
+        assertNotNull(routes);
+        assertEquals(1, routes.length);
+        assertEquals(520, routes[0].getTotalPrice());
+    }
+
+    @Test
+    public void testGraphVersionAdvancesAfterFlightChange() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "DEN", null);
+        ResponseEntity<Route[]> before = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(0, before.getBody().length);
+        long versionBefore = Long.parseLong(before.getHeaders().getFirst("X-Graph-Version"));
+
+        restTemplate.postForEntity("/api/create", new Flight(null, "NYC", "DEN", 210), Flight.class);
+
+        ResponseEntity<Route[]> after = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(1, after.getBody().length, "New flight should be visible to route search");
+        long versionAfter = Long.parseLong(after.getHeaders().getFirst("X-Graph-Version"));
+        assertTrue(versionAfter > versionBefore, "Graph version should advance after a flight is created");
+    }
+
+    @Test
+    public void testDeletedFlightIsRemovedFromRouteGraph() throws InterruptedException {
+        RouteRequestDto request = new RouteRequestDto("NYC", "LAX", null);
+        assertEquals(2, restTemplate.postForEntity("/api/routes", request, Route[].class).getBody().length);
+
+        // Written straight to the repository, so only the change log tells the graph what changed, and the
+        // graph catches up in the background after the commit
+        long version = flightGraphHolder.get().getVersion();
+        flightRepository.delete(flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flightGraphHolder.get().getVersion() == version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Route[] routes = restTemplate.postForEntity("/api/routes", request, Route[].class).getBody();
+        assertEquals(1, routes.length);
+        assertEquals(Arrays.asList("NYC", "CHI", "LAX"), routes[0].getCities());
+    }
+
+    @Test
+    public void testOnlyFlightWritesAdvanceTheChangeLog() {
+        long before = flightChangeLog.latestVersion();
+        transactionTemplate.executeWithoutResult(status ->
+                flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow());
+        assertEquals(before, flightChangeLog.latestVersion(), "Loading a flight must not record a change");
+
+        // Modified without a save, so the change is only flushed when the transaction commits
+        transactionTemplate.executeWithoutResult(status ->
+                flightRepository.findBySourceAndDestination("NYC", "LAX").orElseThrow().setPrice(50));
+        flightGraphHolder.refresh();
+        assertEquals(before + 1, flightChangeLog.latestVersion());
+
+        Route[] routes = restTemplate.postForEntity("/api/routes", new RouteRequestDto("NYC", "LAX", null), Route[].class).getBody();
+        assertTrue(Arrays.stream(routes).anyMatch(route ->
+                route.getCities().equals(Arrays.asList("NYC", "LAX")) && route.getTotalPrice() == 50));
+    }
+
+    @Test
+    public void testGraphSnapshotFileRoundTrip(@TempDir Path directory) {
+        FlightGraph graph = flightGraphHolder.get();
+        FlightGraphSnapshotFile file = new FlightGraphSnapshotFile(directory.resolve("graph.snapshot").toString());
+        file.save(graph, 7);
+
+        assertNull(file.load(8, graph.getVersion()), "Snapshot of another database must be ignored");
+        assertNull(file.load(7, graph.getVersion() - 1), "Snapshot ahead of the database must be ignored");
+        FlightGraph loaded = file.load(7, graph.getVersion());
+        assertNotNull(loaded);
+        assertEquals(graph.getVersion(), loaded.getVersion());
+        assertEquals(graph.flightCount(), loaded.flightCount());
+        int nyc = loaded.airportId("NYC");
+        List<String> destinations = new ArrayList<>();
+        for (int flight = loaded.firstFlight(nyc); flight < loaded.endFlight(nyc); flight++) {
+            destinations.add(loaded.airportCode(loaded.target(flight)));
+        }
+        assertEquals(Arrays.asList("LAX", "CHI", "BOS"), destinations);
+    }
+
+    @Test
+    public void testRouteSearchRecordsMetrics() {
+        DistributionSummary edgesRelaxed = meterRegistry.get("flights.route.search.edges.relaxed").summary();
+        long searches = edgesRelaxed.count();
+        double edges = edgesRelaxed.totalAmount();
+
+        restTemplate.postForEntity("/api/routes", new RouteRequestDto("NYC", "SEA", 3), Route[].class);
+
+        assertEquals(searches + 1, edgesRelaxed.count());
+        assertTrue(edgesRelaxed.totalAmount() > edges, "Search should have looked at some flights");
+        assertTrue(meterRegistry.get("flights.route.search").timers().stream().anyMatch(timer -> timer.count() > 0));
+    }
+
+    @Test
+    public void testSearchBudgetTruncatesRoutes() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
+        request.maxRoutes = 1;
+        ResponseEntity<Route[]> truncated = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(HttpStatus.OK, truncated.getStatusCode());
+        assertEquals(1, truncated.getBody().length);
+        assertEquals("false", truncated.getHeaders().getFirst("X-Routes-Complete"));
+        assertEquals(SearchBudget.MAX_ROUTES, truncated.getHeaders().getFirst("X-Routes-Truncated-By"));
+
+        // The truncated result must not be served from the cache to a request without the budget
+        request.maxRoutes = null;
+        ResponseEntity<Route[]> complete = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals("true", complete.getHeaders().getFirst("X-Routes-Complete"));
+        assertTrue(complete.getBody().length > 1);
+    }
+
+    @Test
+    public void testCachedCompleteResultIsNotServedToATighterBudget() {
+        RouteRequestDto request = new RouteRequestDto("NYC", "SEA", null);
+        ResponseEntity<Route[]> complete = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals("true", complete.getHeaders().getFirst("X-Routes-Complete"));
+        assertTrue(complete.getBody().length > 1);
+
+        request.maxRoutes = 1;
+        ResponseEntity<Route[]> truncated = restTemplate.postForEntity("/api/routes", request, Route[].class);
+        assertEquals(1, truncated.getBody().length);
+        assertEquals("false", truncated.getHeaders().getFirst("X-Routes-Complete"));
+        assertEquals(SearchBudget.MAX_ROUTES, truncated.getHeaders().getFirst("X-Routes-Truncated-By"));
+    }
+
+    @Test
+    public void testSaturatedImportBulkheadShedsLoadWithoutBlockingRoutes() throws Exception {
+        // Occupy every import slot and queue position
+        AdmissionLimiter imports = admissionControlInterceptor.getImportLimiter();
+        List<Long> held = new ArrayList<>();
+        while (imports.getInFlight() < imports.getLimit()) {
+            held.add(imports.acquire());
+        }
+        ExecutorService queued = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < 4; i++) {
+                queued.submit(() -> imports.release(imports.acquire(), false));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (imports.getWaiting() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            ResponseEntity<String> rejected = restTemplate.postForEntity("/api/bulkcreate",
+                    List.of(new Flight(null, "SEA", "DEN", 90)), String.class);
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+            assertTrue(Long.parseLong(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) >= 1);
+
+            // Route queries have a bulkhead of their own
+            ResponseEntity<Route[]> routes = restTemplate.postForEntity("/api/routes", new RouteRequestDto("NYC", "SEA", 3), Route[].class);
+            assertEquals(HttpStatus.OK, routes.getStatusCode());
+        } finally {
+            held.forEach(admittedAt -> imports.release(admittedAt, false));
+            queued.shutdown();
+            assertTrue(queued.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, imports.getInFlight());
+    }
+
     @Test
     public void testPerformanceWithLargeDataset() {
         // Create a larger dataset to test performance
@@ -362,6 +989,7 @@ public class FlightControllerIntegrationTest {
         }
 
         flightRepository.saveAll(largeDataset);
+        flightGraphHolder.refresh();
 
         // Test route finding with timeout
         long startTime = System.currentTimeMillis();